@@ -1,44 +1,24 @@
 package pylos.game;
 
-import java.util.HashSet;
+import pylos.game.internal.Bitboard;
+
 import java.util.Optional;
-import java.util.Set;
 
+/**
+ * View of a position of a game, its color follows the game.
+ */
 public class BallPosition {
 
-    private final Set<BallPosition> ballPositionsOnTopOfMyself;
-    private final Set<BallPosition> ballPositionsAtTheBottomOfMyself;
-    private final Set<Pattern> patterns;
+    private final Pylos pylos;
+    final int index;
     public final int level;
     public final String coordinates;
 
-    private Color color;
-
-    public BallPosition(String coordinates, int level) {
-        this.ballPositionsOnTopOfMyself = new HashSet<>();
-        this.ballPositionsAtTheBottomOfMyself = new HashSet<>();
-        this.patterns = new HashSet<>();
-        this.level = level;
-        this.coordinates = coordinates;
-        this.color = null;
-    }
-
-    public BallPosition addBallPositionAtTheBottomOfMyself(BallPosition ballPosition, Pylos pylos) {
-        ballPositionsAtTheBottomOfMyself.add(ballPosition);
-        ballPosition.addBallPositionOnTopOfIt(this);
-        if (ballPositionsAtTheBottomOfMyself.size() == 4) {
-            BallPosition[] ballPositions = ballPositionsAtTheBottomOfMyself.toArray(new BallPosition[]{});
-            new Pattern(pylos, ballPositions[0], ballPositions[1], ballPositions[2], ballPositions[3]);
-        }
-        return this;
-    }
-
-    private void addBallPositionOnTopOfIt(BallPosition ballPosition) {
-        ballPositionsOnTopOfMyself.add(ballPosition);
-    }
-
-    void addPattern(final Pattern pattern) {
-        patterns.add(pattern);
+    BallPosition(Pylos pylos, int index) {
+        this.pylos = pylos;
+        this.index = index;
+        this.level = Bitboard.level(index);
+        this.coordinates = Bitboard.coordinates(index);
     }
 
     @Override
@@ -46,44 +26,27 @@ public class BallPosition {
         return getColor().map(Object::toString).orElse("X") + ' ' + coordinates + " (level " + level + ')';
     }
 
-    void put(final Color color) {
-        this.color = color;
-        this.patterns.forEach(Pattern::ballAdded);
-    }
-
-    void remove() {
-        this.color = null;
-    }
-
     public Optional<Color> getColor() {
-        return Optional.ofNullable(color);
+        return Optional.ofNullable(pylos.colorAt(index));
     }
 
     public boolean canAcceptBall() {
-        return hasNoBallOnTopOfIt() && isStable() && isEmpty();
+        return Bitboard.canAcceptBall(pylos.occupied(), index);
     }
 
     boolean canBeTaken() {
-        return hasNoBallOnTopOfIt() && !isEmpty();
+        return Bitboard.canBeTaken(pylos.occupied(), index);
     }
 
     boolean isNotOnTopOf(BallPosition lowerBallPosition) {
-        return !ballPositionsAtTheBottomOfMyself.contains(lowerBallPosition);
+        return (Bitboard.support(index) & Bitboard.bit(lowerBallPosition.index)) == 0;
     }
 
     boolean isEmpty() {
-        return color == null;
+        return (pylos.occupied() & Bitboard.bit(index)) == 0;
     }
 
     boolean isNotEmpty() {
         return !isEmpty();
     }
-
-    private boolean hasNoBallOnTopOfIt() {
-        return ballPositionsOnTopOfMyself.stream().noneMatch(BallPosition::isNotEmpty);
-    }
-
-    private boolean isStable() {
-        return ballPositionsAtTheBottomOfMyself.stream().allMatch(BallPosition::isNotEmpty);
-    }
 }
@@ -0,0 +1,199 @@
+package pylos.game;
+
+import pylos.game.internal.Bitboard;
+
+import java.util.SplittableRandom;
+
+/**
+ * Plays random games from a position, as fast as possible: the rules of {@link Pylos} are played on a few ints,
+ * without commands, lists or history, so a game allocates nothing and prints nothing. Each command is drawn uniformly
+ * among the next moves, in their order, so a playout picks the same commands as drawing from
+ * {@link Pylos#nextMoves()} with the same random numbers.
+ * <p>
+ * A playout only reads the game it starts from. Each thread needs its own instance.
+ */
+public final class Playout {
+
+    /**
+     * Balls can be taken back, so a random game could last long: longer ones are stopped and have no winner.
+     */
+    public static final int MAX_COMMANDS = 1000;
+
+    private static final int MAX_NUMBER_OF_BALLS = 15;
+
+    private static final Color[] COLORS = Color.values();
+
+    private static final int CLASSIC = State.CLASSIC.ordinal();
+
+    private static final int SPECIAL1 = State.SPECIAL1.ordinal();
+
+    private static final int SPECIAL2 = State.SPECIAL2.ordinal();
+
+    private final SplittableRandom random;
+
+    /**
+     * Balls of each color, by ordinal.
+     */
+    private final int[] balls = new int[COLORS.length];
+
+    private int color;
+
+    private int state;
+
+    private int freeToPut;
+
+    private int covered;
+
+    private int commands;
+
+    public Playout(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Plays random commands from the position of the game until it is over.
+     *
+     * @return the winner, or null when the game lasted more than {@link #MAX_COMMANDS} commands
+     */
+    public Color play(Pylos pylos) {
+        balls[Color.WHITE.ordinal()] = pylos.balls(Color.WHITE);
+        balls[Color.BLACK.ordinal()] = pylos.balls(Color.BLACK);
+        color = pylos.currentColor().ordinal();
+        state = pylos.currentState().ordinal();
+        int occupied = occupied();
+        freeToPut = Bitboard.freeToPut(occupied);
+        covered = Bitboard.covered(occupied);
+
+        for (commands = 0; occupied() != Bitboard.FULL; commands++) {
+            if (commands == MAX_COMMANDS) {
+                return null;
+            }
+            if (state == CLASSIC) {
+                playClassic();
+            } else {
+                playSpecial();
+            }
+        }
+        return (balls[Color.WHITE.ordinal()] & Bitboard.bit(Bitboard.SIZE - 1)) != 0 ? Color.WHITE : Color.BLACK;
+    }
+
+    /**
+     * @return the number of commands of the last playout
+     */
+    public int commands() {
+        return commands;
+    }
+
+    /**
+     * Plays random games from the position of the game, draws counting half.
+     *
+     * @return the share of the games won by the color
+     */
+    public double winRate(Pylos pylos, Color color, int playouts) {
+        int halfWins = 0;
+        for (int i = 0; i < playouts; i++) {
+            Color winner = play(pylos);
+            halfWins += winner == null ? 1 : winner == color ? 2 : 0;
+        }
+        return halfWins / (2.0 * playouts);
+    }
+
+    /**
+     * Puts or moves a ball, drawn among the puts then the moves to each upper position, like the next moves.
+     */
+    private void playClassic() {
+        int freeToTake = balls[color] & ~covered;
+        int puts = Integer.bitCount(freeToPut);
+        int count = puts;
+        for (int uppers = freeToPut & Bitboard.UPPER_LEVELS; uppers != 0; uppers &= uppers - 1) {
+            count += Integer.bitCount(movableTo(Integer.numberOfTrailingZeros(uppers), freeToTake));
+        }
+
+        int choice = random.nextInt(count);
+        if (choice < puts) {
+            put(nthBit(freeToPut, choice));
+            return;
+        }
+        choice -= puts;
+        for (int uppers = freeToPut & Bitboard.UPPER_LEVELS; ; uppers &= uppers - 1) {
+            int upper = Integer.numberOfTrailingZeros(uppers);
+            int lowers = movableTo(upper, freeToTake);
+            int moves = Integer.bitCount(lowers);
+            if (choice < moves) {
+                take(nthBit(lowers, choice));
+                put(upper);
+                return;
+            }
+            choice -= moves;
+        }
+    }
+
+    /**
+     * Removes a ball or passes, the pass coming after the removes like in the next moves.
+     */
+    private void playSpecial() {
+        int freeToTake = balls[color] & ~covered;
+        int choice = random.nextInt(Integer.bitCount(freeToTake) + 1);
+        if (choice == Integer.bitCount(freeToTake)) {
+            switchColor();
+            return;
+        }
+        take(nthBit(freeToTake, choice));
+        if (state == SPECIAL2) {
+            switchColor();
+        } else {
+            state = SPECIAL2;
+        }
+    }
+
+    private int movableTo(int upper, int freeToTake) {
+        return freeToTake & Bitboard.belowLevel(Bitboard.level(upper)) & ~Bitboard.support(upper);
+    }
+
+    private static int nthBit(int mask, int n) {
+        for (int i = 0; i < n; i++) {
+            mask &= mask - 1;
+        }
+        return Integer.numberOfTrailingZeros(mask);
+    }
+
+    private int occupied() {
+        return balls[0] | balls[1];
+    }
+
+    private void put(int index) {
+        balls[color] |= Bitboard.bit(index);
+        freeToPut &= ~Bitboard.bit(index);
+        for (int uppers = Bitboard.cover(index); uppers != 0; uppers &= uppers - 1) {
+            int upper = Integer.numberOfTrailingZeros(uppers);
+            if ((occupied() & Bitboard.support(upper)) == Bitboard.support(upper)) {
+                freeToPut |= Bitboard.bit(upper);
+            }
+        }
+        covered |= Bitboard.support(index);
+        if (Bitboard.completesPattern(balls[color], index)) {
+            state = SPECIAL1;
+        } else {
+            switchColor();
+        }
+    }
+
+    private void take(int index) {
+        balls[color] &= ~Bitboard.bit(index);
+        freeToPut = freeToPut & ~Bitboard.cover(index) | Bitboard.bit(index);
+        covered &= ~Bitboard.support(index);
+        for (int lowers = Bitboard.support(index); lowers != 0; lowers &= lowers - 1) {
+            int lower = Integer.numberOfTrailingZeros(lowers);
+            if ((occupied() & Bitboard.cover(lower)) != 0) {
+                covered |= Bitboard.bit(lower);
+            }
+        }
+    }
+
+    private void switchColor() {
+        state = CLASSIC;
+        if (Integer.bitCount(balls[1 - color]) < MAX_NUMBER_OF_BALLS) {
+            color = 1 - color;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package pylos.game;
+
+import pylos.game.internal.Bitboard;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Numbers the positions with a range of empty positions from 0 without gaps, so that data about positions can be
+ * kept in flat arrays or mapped files rather than in hash maps. {@link #unrank(long)} gives the position of a number.
+ * <p>
+ * A position is its balls and the color to play, whatever command it waits for. Positions come in the order of
+ * their shape (the occupied positions, whose supports are always occupied), of the color to play, of the number of
+ * black balls (which sets the balls left to each color), then of the rank of the black balls among the subsets of
+ * the shape of that size, subsets coming in increasing order of their masks. The color to play always has a ball
+ * left, as the other color plays otherwise.
+ * <p>
+ * A {@link Cursor} follows a position ball by ball, and updates its number faster than ranking it again.
+ * <p>
+ * An index can also number only the positions that keep some fixed balls, such as the balls of a level that can no
+ * longer be uncovered: the rank of the black balls is then among the other positions of the shape.
+ */
+public final class PositionIndex {
+
+    static final int MAX_NUMBER_OF_BALLS = 15;
+
+    private static final long[][] BINOMIALS = new long[Bitboard.SIZE + 2][Bitboard.SIZE + 2];
+
+    private static final Color[] COLORS = Color.values();
+
+    /**
+     * Groups of positions of a shape: one per color to play and number of black balls.
+     */
+    private static final int GROUPS = 2 * (MAX_NUMBER_OF_BALLS + 1);
+
+    static {
+        for (int n = 0; n < BINOMIALS.length; n++) {
+            BINOMIALS[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                BINOMIALS[n][k] = BINOMIALS[n - 1][k - 1] + BINOMIALS[n - 1][k];
+            }
+        }
+    }
+
+    private final int minEmpty;
+
+    private final int maxEmpty;
+
+    private final int fixedWhite;
+
+    private final int fixedBlack;
+
+    /**
+     * Shapes in increasing order. The positions of shape s start at shapeOffsets[s], and the ones of a color to play
+     * and number of black balls at shapeOffsets[s] + groupOffsets[s][group], -1 for groups without positions.
+     */
+    private final int[] shapes;
+
+    private final long[] shapeOffsets;
+
+    private final long[][] groupOffsets;
+
+    private final long size;
+
+    /**
+     * @param minEmpty the fewest empty positions of the numbered positions, 0 for all of them
+     * @param maxEmpty the most empty positions of the numbered positions, {@link Bitboard#SIZE} for all of them
+     */
+    public PositionIndex(int minEmpty, int maxEmpty) {
+        this(minEmpty, maxEmpty, 0, 0);
+    }
+
+    /**
+     * @param fixedWhite the white balls of all the numbered positions
+     * @param fixedBlack the black balls of all the numbered positions
+     */
+    PositionIndex(int minEmpty, int maxEmpty, int fixedWhite, int fixedBlack) {
+        this.minEmpty = minEmpty;
+        this.maxEmpty = maxEmpty;
+        this.fixedWhite = fixedWhite;
+        this.fixedBlack = fixedBlack;
+        int fixed = fixedWhite | fixedBlack;
+        int fixedBlackCount = Integer.bitCount(fixedBlack);
+        shapes = shapes(minEmpty, maxEmpty, fixed);
+        shapeOffsets = new long[shapes.length];
+        groupOffsets = new long[shapes.length][GROUPS];
+        long offset = 0;
+        for (int shape = 0; shape < shapes.length; shape++) {
+            int count = Integer.bitCount(shapes[shape]);
+            int freeCount = count - Integer.bitCount(fixed);
+            shapeOffsets[shape] = offset;
+            Arrays.fill(groupOffsets[shape], -1);
+            long shapeSize = 0;
+            for (Color color : COLORS) {
+                int min = Math.max(minBlackCount(count, color), fixedBlackCount);
+                int max = Math.min(maxBlackCount(count, color), fixedBlackCount + freeCount);
+                for (int blackCount = min; blackCount <= max; blackCount++) {
+                    groupOffsets[shape][group(color, blackCount)] = shapeSize;
+                    shapeSize += BINOMIALS[freeCount][blackCount - fixedBlackCount];
+                }
+            }
+            offset += shapeSize;
+        }
+        size = offset;
+    }
+
+    /**
+     * Shapes are found by taking, from the full pyramid, balls that have nothing on top of them, except the fixed ones.
+     */
+    private static int[] shapes(int minEmpty, int maxEmpty, int fixed) {
+        Set<Integer> found = new TreeSet<>();
+        Set<Integer> current = Set.of(Bitboard.FULL);
+        for (int empty = 0; empty <= maxEmpty && !current.isEmpty(); empty++) {
+            if (empty >= minEmpty) {
+                found.addAll(current);
+            }
+            Set<Integer> next = new HashSet<>();
+            for (int occupied : current) {
+                for (int free = occupied & ~Bitboard.covered(occupied) & ~fixed; free != 0; free &= free - 1) {
+                    next.add(occupied & ~(free & -free));
+                }
+            }
+            current = next;
+        }
+        return found.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int group(Color color, int blackCount) {
+        return color.ordinal() * (MAX_NUMBER_OF_BALLS + 1) + blackCount;
+    }
+
+    static int minBlackCount(int count, Color color) {
+        return Math.max(0, count - (color == Color.WHITE ? MAX_NUMBER_OF_BALLS - 1 : MAX_NUMBER_OF_BALLS));
+    }
+
+    static int maxBlackCount(int count, Color color) {
+        return Math.min(color == Color.BLACK ? MAX_NUMBER_OF_BALLS - 1 : MAX_NUMBER_OF_BALLS, count);
+    }
+
+    public int minEmpty() {
+        return minEmpty;
+    }
+
+    public int maxEmpty() {
+        return maxEmpty;
+    }
+
+    int fixedWhite() {
+        return fixedWhite;
+    }
+
+    int fixedBlack() {
+        return fixedBlack;
+    }
+
+    /**
+     * @return the number of positions, the numbers go from 0 to size() - 1
+     */
+    public long size() {
+        return size;
+    }
+
+    int shapeCount() {
+        return shapes.length;
+    }
+
+    int shape(int shape) {
+        return shapes[shape];
+    }
+
+    /**
+     * @return the number of the first position of the shape with the given color to play and number of black balls,
+     * the others following in the order of the ranks of their black balls, -1 if there are no such positions
+     */
+    long firstRank(int shape, Color color, int blackCount) {
+        long groupOffset = groupOffsets[shape][group(color, blackCount)];
+        return groupOffset < 0 ? -1 : shapeOffsets[shape] + groupOffset;
+    }
+
+    /**
+     * @return the number of the position of the game, -1 if it isn't numbered
+     */
+    public long rank(Pylos pylos) {
+        return rank(pylos.balls(Color.WHITE), pylos.balls(Color.BLACK), pylos.currentColor());
+    }
+
+    /**
+     * @return the number of the position, -1 if it isn't numbered
+     */
+    public long rank(int whiteBalls, int blackBalls, Color color) {
+        int fixed = fixedWhite | fixedBlack;
+        long blackRank = subsetRank((whiteBalls | blackBalls) & ~fixed, blackBalls & ~fixed);
+        return rank(whiteBalls | blackBalls, blackBalls, color, blackRank);
+    }
+
+    private long rank(int occupied, int blackBalls, Color color, long blackRank) {
+        int shape = Arrays.binarySearch(shapes, occupied);
+        int blackCount = Integer.bitCount(blackBalls);
+        if (shape < 0 || blackCount > MAX_NUMBER_OF_BALLS || (blackBalls & (fixedWhite | fixedBlack)) != fixedBlack) {
+            return -1;
+        }
+        long groupOffset = groupOffsets[shape][group(color, blackCount)];
+        return groupOffset < 0 ? -1 : shapeOffsets[shape] + groupOffset + blackRank;
+    }
+
+    /**
+     * @return the position of the number, packed as by {@link #pack(int, int, Color)}
+     * @throws IndexOutOfBoundsException when no position has the number
+     */
+    public long unrank(long rank) {
+        if (rank < 0 || rank >= size) {
+            throw new IndexOutOfBoundsException("No position has the number " + rank);
+        }
+        int shape = Arrays.binarySearch(shapeOffsets, rank);
+        if (shape < 0) {
+            shape = -shape - 2;
+        }
+        // Shapes without positions have the offset of the next one
+        while (shape + 1 < shapes.length && shapeOffsets[shape + 1] == shapeOffsets[shape]) {
+            shape++;
+        }
+        long offset = rank - shapeOffsets[shape];
+        int group = GROUPS - 1;
+        while (groupOffsets[shape][group] < 0 || groupOffsets[shape][group] > offset) {
+            group--;
+        }
+        Color color = COLORS[group / (MAX_NUMBER_OF_BALLS + 1)];
+        int blackCount = group % (MAX_NUMBER_OF_BALLS + 1);
+
+        long blackRank = offset - groupOffsets[shape][group];
+        int occupied = shapes[shape];
+        int free = occupied & ~(fixedWhite | fixedBlack);
+        int subset = 0;
+        int position = Integer.bitCount(free);
+        for (int k = blackCount - Integer.bitCount(fixedBlack); k > 0; k--) {
+            do {
+                position--;
+            } while (BINOMIALS[position][k] > blackRank);
+            blackRank -= BINOMIALS[position][k];
+            subset |= 1 << position;
+        }
+        int blackBalls = deposit(subset, free) | fixedBlack;
+        return pack(occupied & ~blackBalls, blackBalls, color);
+    }
+
+    /**
+     * @return the rank of the subset among the subsets of the same size of {@code positions}, in increasing order of
+     * their masks
+     */
+    static long subsetRank(int positions, int subset) {
+        long rank = 0;
+        int k = 0;
+        for (int balls = subset; balls != 0; balls &= balls - 1) {
+            int below = (balls & -balls) - 1;
+            rank += BINOMIALS[Integer.bitCount(positions & below)][++k];
+        }
+        return rank;
+    }
+
+    /**
+     * @return the positions of mask selected by subset, bit i of subset standing for the i-th position of mask
+     */
+    static int deposit(int subset, int mask) {
+        int positions = 0;
+        for (; subset != 0; subset >>>= 1, mask &= mask - 1) {
+            if ((subset & 1) != 0) {
+                positions |= mask & -mask;
+            }
+        }
+        return positions;
+    }
+
+    public static long pack(int whiteBalls, int blackBalls, Color color) {
+        return whiteBalls | (long) blackBalls << Bitboard.SIZE | (long) color.ordinal() << 2 * Bitboard.SIZE;
+    }
+
+    public static int whiteBalls(long packed) {
+        return (int) packed & Bitboard.FULL;
+    }
+
+    public static int blackBalls(long packed) {
+        return (int) (packed >>> Bitboard.SIZE) & Bitboard.FULL;
+    }
+
+    public static Color color(long packed) {
+        return COLORS[(int) (packed >>> 2 * Bitboard.SIZE)];
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Follows a position as balls are put and taken, keeping the rank of its black balls up to date: a change only
+     * moves the rank by terms for the black balls after it in the order of positions, where ranking again goes
+     * through all of them. Positions in between don't need to be numbered, like the one between the take and the
+     * put of a move. Fixed balls don't count in the rank.
+     */
+    public final class Cursor {
+
+        private int occupied;
+
+        private int blackBalls;
+
+        private Color color = Color.WHITE;
+
+        private long blackRank;
+
+        private Cursor() {
+        }
+
+        public Cursor set(int whiteBalls, int blackBalls, Color color) {
+            this.occupied = whiteBalls | blackBalls;
+            this.blackBalls = blackBalls;
+            this.color = color;
+            int fixed = fixedWhite | fixedBlack;
+            blackRank = subsetRank(occupied & ~fixed, blackBalls & ~fixed);
+            return this;
+        }
+
+        public Cursor put(int position, Color ballColor) {
+            int bit = Bitboard.bit(position);
+            int fixed = fixedWhite | fixedBlack;
+            if ((bit & fixed) == 0) {
+                int freeOccupied = occupied & ~fixed;
+                int freeBlackBalls = blackBalls & ~fixed;
+                int after = -(bit << 1);
+                long delta = 0;
+                int k = Integer.bitCount(freeBlackBalls & (bit - 1));
+                if (ballColor == Color.BLACK) {
+                    // The new ball comes k + 1-th, the balls after it move one position and one rank further
+                    delta += BINOMIALS[Integer.bitCount(freeOccupied & (bit - 1))][k + 1];
+                    for (int balls = freeBlackBalls & after; balls != 0; balls &= balls - 1) {
+                        delta += BINOMIALS[Integer.bitCount(freeOccupied & ((balls & -balls) - 1))][++k + 1];
+                    }
+                } else {
+                    // The balls after it only move one position further
+                    for (int balls = freeBlackBalls & after; balls != 0; balls &= balls - 1) {
+                        delta += BINOMIALS[Integer.bitCount(freeOccupied & ((balls & -balls) - 1))][k++];
+                    }
+                }
+                blackRank += delta;
+            }
+            if (ballColor == Color.BLACK) {
+                blackBalls |= bit;
+            }
+            occupied |= bit;
+            return this;
+        }
+
+        public Cursor take(int position) {
+            int bit = Bitboard.bit(position);
+            boolean black = (blackBalls & bit) != 0;
+            occupied &= ~bit;
+            blackBalls &= ~bit;
+            int fixed = fixedWhite | fixedBlack;
+            if ((bit & fixed) == 0) {
+                int freeOccupied = occupied & ~fixed;
+                int freeBlackBalls = blackBalls & ~fixed;
+                int after = -(bit << 1);
+                long delta = 0;
+                int k = Integer.bitCount(freeBlackBalls & (bit - 1));
+                if (black) {
+                    delta += BINOMIALS[Integer.bitCount(freeOccupied & (bit - 1))][k + 1];
+                    for (int balls = freeBlackBalls & after; balls != 0; balls &= balls - 1) {
+                        delta += BINOMIALS[Integer.bitCount(freeOccupied & ((balls & -balls) - 1))][++k + 1];
+                    }
+                } else {
+                    for (int balls = freeBlackBalls & after; balls != 0; balls &= balls - 1) {
+                        delta += BINOMIALS[Integer.bitCount(freeOccupied & ((balls & -balls) - 1))][k++];
+                    }
+                }
+                blackRank -= delta;
+            }
+            return this;
+        }
+
+        public Cursor color(Color color) {
+            this.color = color;
+            return this;
+        }
+
+        /**
+         * @return the number of the position, -1 if it isn't numbered
+         */
+        public long rank() {
+            return PositionIndex.this.rank(occupied, blackBalls, color, blackRank);
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package pylos.game;
+
+import pylos.game.internal.Bitboard;
+import pylos.game.internal.Symmetry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Solves games with depth-first proof-number search (df-pn): it proves that the color to play can force a win, or
+ * disproves it. Each node is a position waiting for a put or a move, and its children are the positions after each
+ * turn, that is a put or a move and the removals it allows. A node has a proof number, the least number of nodes to
+ * solve to prove the win, and a disproof number, the least to disprove it, and the search always expands the most
+ * proving node below the root, going back up only when the numbers of a node pass thresholds.
+ * <p>
+ * The numbers are kept in a {@link ProofNumberTable}, which spills to a mapped file once the heap holds its budget
+ * of nodes. Checkpoints force the file to the disk, so a run that takes days can be stopped and resumed, and the
+ * numbers of the root are reported as the search goes. Symmetric positions have the same value, so nodes are keyed
+ * on their canonical form and solved once.
+ * <p>
+ * Balls can be taken back, so a game can come back to a position, or to one of its symmetric images: a repetition is
+ * not a win of the color that tries to prove one. Like most proof-number searches, the solver doesn't tell
+ * repetitions reached on different paths apart, so a disproof can miss a win that avoids them, while a proof is
+ * always a win.
+ */
+public final class ProofNumberSolver implements AutoCloseable {
+
+    public static final int INFINITY = Integer.MAX_VALUE;
+
+    /**
+     * The file of {@link #main(String[])}, unless the {@code pylos.proofs} system property names another one.
+     */
+    public static final String DEFAULT_FILE = "pylos.proofs";
+
+    private static final long PROVEN = ProofNumberTable.pack(0, INFINITY);
+
+    private static final long DISPROVEN = ProofNumberTable.pack(INFINITY, 0);
+
+    private static final long UNSOLVED = ProofNumberTable.pack(1, 1);
+
+    private static final Color[] COLORS = Color.values();
+
+    /**
+     * The clock is read once every so many expanded nodes.
+     */
+    private static final int CLOCK_MASK = (1 << 12) - 1;
+
+    /**
+     * Numbers all the positions, the keys of the nodes.
+     */
+    private static final PositionIndex INDEX = new PositionIndex(0, Bitboard.SIZE);
+
+    private final ProofNumberTable table;
+
+    /**
+     * The turns of the nodes being expanded and their keys, by depth.
+     */
+    private final List<Turns> turns = new ArrayList<>();
+
+    private long[] path = new long[64];
+
+    private Tablebase tablebase;
+
+    private Duration checkpointInterval = Duration.ofMinutes(10);
+
+    private Duration reportInterval = Duration.ofMinutes(1);
+
+    private Color attacker;
+
+    private long expanded;
+
+    private long start;
+
+    private long nextCheckpoint;
+
+    private long nextReport;
+
+    private long rootNumbers;
+
+    /**
+     * Opens the table of the file, to resume the search of earlier runs, or creates it.
+     *
+     * @param heapNodes the number of nodes kept in the heap before they are spilled to the file
+     */
+    public ProofNumberSolver(Path file, int heapNodes) throws IOException {
+        table = new ProofNumberTable(file, heapNodes);
+    }
+
+    /**
+     * Proves or disproves the positions that the tablebase solves without searching them.
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public void setCheckpointInterval(Duration checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    public void setReportInterval(Duration reportInterval) {
+        this.reportInterval = reportInterval;
+    }
+
+    /**
+     * Searches until the game is solved.
+     *
+     * @param pylos a game waiting for a put or a move, which isn't changed
+     * @return whether the color to play can force a win
+     */
+    public boolean solve(Pylos pylos) throws IOException {
+        if (pylos.gameOver() || pylos.currentState() != State.CLASSIC) {
+            throw new IllegalArgumentException("The solver starts from games waiting for a put or a move");
+        }
+        attacker = pylos.currentColor();
+        int white = pylos.balls(Color.WHITE);
+        int black = pylos.balls(Color.BLACK);
+        long position = PositionIndex.pack(white, black, attacker);
+        long key = key(white, black, attacker);
+        start = System.nanoTime();
+        nextCheckpoint = start + checkpointInterval.toNanos();
+        nextReport = start + reportInterval.toNanos();
+        expanded = 0;
+        try {
+            search(position, key, INFINITY, INFINITY, 0);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        rootNumbers = table.get(key);
+        checkpoint();
+        return ProofNumberTable.proof(rootNumbers) == 0;
+    }
+
+    /**
+     * @return the key of the node: the number of the canonical form of the position, as for
+     * {@link Pylos#canonicalSymmetry()}, and the attacker, as nodes are proven for a color and a table serves both
+     */
+    private long key(int white, int black, Color color) {
+        int symmetry = Pylos.canonicalSymmetry(white, black);
+        long rank = INDEX.rank(Symmetry.transformMask(symmetry, white), Symmetry.transformMask(symmetry, black), color);
+        return 2 * rank + attacker.ordinal();
+    }
+
+    /**
+     * Expands the node until its proof number reaches proofThreshold or its disproof number disproofThreshold, and
+     * stores its numbers. A node where the attacker plays is proven by one of its turns, the others by all of them.
+     */
+    private void search(long position, long key, int proofThreshold, int disproofThreshold, int depth) {
+        if ((++expanded & CLOCK_MASK) == 0) {
+            tick();
+        }
+        Turns turns = turns(depth);
+        boolean attacking = PositionIndex.color(position) == attacker;
+        if (!turns.generate(position)) {
+            put(key, attacking ? PROVEN : DISPROVEN);
+            return;
+        }
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, 2 * depth);
+        }
+        path[depth] = key;
+        // The number minimized over the turns is the proof number for the attacker, the disproof number otherwise
+        int minThreshold = attacking ? proofThreshold : disproofThreshold;
+        int sumThreshold = attacking ? disproofThreshold : proofThreshold;
+        boolean stored = table.get(key) != ProofNumberTable.ABSENT;
+        for (boolean entered = true; ; entered = false) {
+            int min = INFINITY;
+            int second = INFINITY;
+            int sum = 0;
+            int best = -1;
+            int bestSum = 0;
+            for (int turn = 0; turn < turns.size; turn++) {
+                long numbers = numbers(turns.positions[turn], turns.keys[turn], depth);
+                int turnMin = attacking ? ProofNumberTable.proof(numbers) : ProofNumberTable.disproof(numbers);
+                int turnSum = attacking ? ProofNumberTable.disproof(numbers) : ProofNumberTable.proof(numbers);
+                sum = add(sum, turnSum);
+                if (turnMin < min) {
+                    second = min;
+                    min = turnMin;
+                    best = turn;
+                    bestSum = turnSum;
+                } else if (turnMin < second) {
+                    second = turnMin;
+                }
+            }
+            if (entered && stored) {
+                // The turns may have changed since the numbers the thresholds come from were stored, through other
+                // paths or repetitions: expanding at least once keeps such nodes from returning at once, forever
+                minThreshold = Math.max(minThreshold, add(min, 1));
+                sumThreshold = Math.max(sumThreshold, add(sum, 1));
+            }
+            if (min >= minThreshold || sum >= sumThreshold) {
+                put(key, attacking ? ProofNumberTable.pack(min, sum) : ProofNumberTable.pack(sum, min));
+                return;
+            }
+            int turnMinThreshold = Math.min(minThreshold, add(second, 1));
+            int turnSumThreshold = sumThreshold == INFINITY ? INFINITY : sumThreshold - sum + bestSum;
+            search(turns.positions[best], turns.keys[best],
+                    attacking ? turnMinThreshold : turnSumThreshold,
+                    attacking ? turnSumThreshold : turnMinThreshold, depth + 1);
+        }
+    }
+
+    /**
+     * @return the numbers of a turn: a repetition of a position of the path is disproven, the others are the ones
+     * stored, solved by the tablebase or those of a new node
+     */
+    private long numbers(long position, long key, int depth) {
+        for (int i = 0; i <= depth; i++) {
+            if (path[i] == key) {
+                return DISPROVEN;
+            }
+        }
+        long numbers = table.get(key);
+        if (numbers != ProofNumberTable.ABSENT) {
+            return numbers;
+        }
+        if (tablebase != null) {
+            int white = PositionIndex.whiteBalls(position);
+            int black = PositionIndex.blackBalls(position);
+            if (Bitboard.SIZE - Integer.bitCount(white | black) <= tablebase.maxEmpty()) {
+                Color color = PositionIndex.color(position);
+                int value = tablebase.value(white, black, color);
+                if (value != Tablebase.UNKNOWN) {
+                    return (value > 0) == (color == attacker) ? PROVEN : DISPROVEN;
+                }
+            }
+        }
+        return UNSOLVED;
+    }
+
+    private static int add(int a, int b) {
+        if (a == INFINITY || b == INFINITY) {
+            return INFINITY;
+        }
+        return (int) Math.min(INFINITY - 1L, (long) a + b);
+    }
+
+    private void put(long key, long numbers) {
+        try {
+            table.put(key, ProofNumberTable.proof(numbers), ProofNumberTable.disproof(numbers));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Turns turns(int depth) {
+        while (turns.size() <= depth) {
+            turns.add(new Turns());
+        }
+        return turns.get(depth);
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        if (now - nextReport >= 0) {
+            report(now);
+            nextReport = now + reportInterval.toNanos();
+        }
+        if (now - nextCheckpoint >= 0) {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            nextCheckpoint = System.nanoTime() + checkpointInterval.toNanos();
+        }
+    }
+
+    /**
+     * Prints the numbers of the root, from the ones of its turns as the root itself is only stored once its search
+     * is over.
+     */
+    private void report(long now) {
+        Turns root = turns.get(0);
+        boolean attacking = PositionIndex.color(root.position) == attacker;
+        int proof = attacking ? INFINITY : 0;
+        int disproof = attacking ? 0 : INFINITY;
+        for (int turn = 0; turn < root.size; turn++) {
+            long numbers = numbers(root.positions[turn], root.keys[turn], 0);
+            if (attacking) {
+                proof = Math.min(proof, ProofNumberTable.proof(numbers));
+                disproof = add(disproof, ProofNumberTable.disproof(numbers));
+            } else {
+                proof = add(proof, ProofNumberTable.proof(numbers));
+                disproof = Math.min(disproof, ProofNumberTable.disproof(numbers));
+            }
+        }
+        double seconds = (now - start) / 1e9;
+        System.out.printf("%d nodes in %.0f seconds (%.0f nodes/s), %d in the heap, %d in the file: proof %d, disproof %d%n",
+                table.expanded() + expanded, table.nanos() / 1e9 + seconds, expanded / seconds,
+                table.heapSize(), table.mappedSize(), proof, disproof);
+    }
+
+    private void checkpoint() throws IOException {
+        long now = System.nanoTime();
+        table.checkpoint(table.expanded() + expanded, table.nanos() + now - start);
+        expanded = 0;
+        start = now;
+    }
+
+    public int proofNumber() {
+        return ProofNumberTable.proof(rootNumbers);
+    }
+
+    public int disproofNumber() {
+        return ProofNumberTable.disproof(rootNumbers);
+    }
+
+    /**
+     * @return the nodes expanded by all the runs on the file
+     */
+    public long expandedNodes() {
+        return table.expanded() + expanded;
+    }
+
+    @Override
+    public void close() throws IOException {
+        table.close();
+    }
+
+    /**
+     * The turns of a node: the positions after each put or move and the removals it allows, without duplicates, and
+     * their keys.
+     */
+    private final class Turns {
+
+        private long position;
+
+        private long[] positions = new long[64];
+
+        private long[] keys = new long[64];
+
+        private int size;
+
+        /**
+         * @return false when a put fills the pyramid, which wins the game for the color to play
+         */
+        boolean generate(long position) {
+            this.position = position;
+            size = 0;
+            Color color = PositionIndex.color(position);
+            int white = PositionIndex.whiteBalls(position);
+            int black = PositionIndex.blackBalls(position);
+            int mover = color == Color.WHITE ? white : black;
+            int other = color == Color.WHITE ? black : white;
+            int occupied = white | black;
+            int freeToPut = Bitboard.freeToPut(occupied);
+            int freeToTake = mover & ~Bitboard.covered(occupied);
+            for (int free = freeToPut; free != 0; free &= free - 1) {
+                int put = Integer.numberOfTrailingZeros(free);
+                if (!afterPut(mover | Bitboard.bit(put), other, color, put)) {
+                    return false;
+                }
+            }
+            for (int uppers = freeToPut & Bitboard.UPPER_LEVELS; uppers != 0; uppers &= uppers - 1) {
+                int upper = Integer.numberOfTrailingZeros(uppers);
+                int lowers = freeToTake & Bitboard.belowLevel(Bitboard.level(upper)) & ~Bitboard.support(upper);
+                for (; lowers != 0; lowers &= lowers - 1) {
+                    afterPut(mover & ~(lowers & -lowers) | Bitboard.bit(upper), other, color, upper);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Adds the turns of a put, alone or as part of a move: a completed pattern lets the color remove one or two
+         * of its balls, the ball just put included.
+         *
+         * @return false when the put fills the pyramid
+         */
+        private boolean afterPut(int mover, int other, Color color, int put) {
+            if ((mover | other) == Bitboard.FULL) {
+                return false;
+            }
+            if (!Bitboard.completesPattern(mover, put)) {
+                endTurn(mover, other, color);
+                return true;
+            }
+            endTurn(mover, other, color);
+            for (int first = mover & ~Bitboard.covered(mover | other); first != 0; first &= first - 1) {
+                int afterFirst = mover & ~(first & -first);
+                endTurn(afterFirst, other, color);
+                for (int second = afterFirst & ~Bitboard.covered(afterFirst | other); second != 0; second &= second - 1) {
+                    endTurn(afterFirst & ~(second & -second), other, color);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Adds the position after the turn: the other color plays next, unless it has no ball left to put.
+         */
+        private void endTurn(int mover, int other, Color color) {
+            Color next = Integer.bitCount(other) < PositionIndex.MAX_NUMBER_OF_BALLS ? COLORS[1 - color.ordinal()] : color;
+            int white = color == Color.WHITE ? mover : other;
+            int black = color == Color.WHITE ? other : mover;
+            long key = key(white, black, next);
+            for (int turn = 0; turn < size; turn++) {
+                if (keys[turn] == key) {
+                    return;
+                }
+            }
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, 2 * size);
+                keys = Arrays.copyOf(keys, 2 * size);
+            }
+            positions[size] = PositionIndex.pack(white, black, next);
+            keys[size++] = key;
+        }
+    }
+
+    /**
+     * Solves the game from its start, resuming the search of the file. Usage: ProofNumberSolver [file] [heapNodes]
+     * [checkpointMinutes]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path file = Path.of(args.length > 0 ? args[0] : System.getProperty("pylos.proofs", DEFAULT_FILE));
+        int heapNodes = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 22;
+        Duration checkpointInterval = Duration.ofMinutes(args.length > 2 ? Long.parseLong(args[2]) : 10);
+        try (ProofNumberSolver solver = new ProofNumberSolver(file, heapNodes)) {
+            solver.setCheckpointInterval(checkpointInterval);
+            Tablebase.openDefault().ifPresent(solver::setTablebase);
+            Pylos pylos = new Pylos();
+            boolean[] won = new boolean[1];
+            IOException[] failure = new IOException[1];
+            // The search goes as deep as the longest games, deeper than the stack of the main thread allows
+            Thread thread = new Thread(null, () -> {
+                try {
+                    won[0] = solver.solve(pylos);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }, "proof-number-solver", 1L << 30);
+            thread.start();
+            thread.join();
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            System.out.println(pylos.currentColor() + (won[0] ? " can" : " cannot") + " force a win, after "
+                    + solver.expandedNodes() + " nodes");
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package pylos.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The proof and disproof numbers of the nodes of a {@link ProofNumberSolver}, by key. Nodes are kept in a hash table
+ * in the heap until it holds its budget of nodes, then spilled to a larger hash table in a file mapped in memory,
+ * which grows as needed and is the memory of the search from one run to the next.
+ * <p>
+ * The file is written in place, an entry getting its numbers before its key, so a process killed at any time leaves
+ * numbers that are still right for their nodes, only older. The entries are counted again when the file is opened, as
+ * the count in the header can miss the ones of a spill that didn't complete. A checkpoint spills the heap, records
+ * the counters of the runs so far and forces the file to the disk. Writes to a mapped file only keep their order
+ * for the process: when the system itself stops, the pages written since the last checkpoint can reach the disk in
+ * any order, and the file may hold keys without their numbers.
+ */
+final class ProofNumberTable implements AutoCloseable {
+
+    /**
+     * Returned by {@link #get(long)} for nodes that aren't in the table.
+     */
+    static final long ABSENT = -1;
+
+    /**
+     * The heap table has room for four times its budget at most, in arrays of less than 2^31 entries.
+     */
+    static final int MAX_HEAP_NODES = 1 << 28;
+
+    private static final int MAGIC = 0x5059504E;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 64;
+
+    private static final int ENTRY_BYTES = 16;
+
+    private static final int MIN_CAPACITY = 1 << 16;
+
+    /**
+     * A buffer maps at most 2GB, larger files are mapped as several chunks. Entries never straddle two chunks.
+     */
+    private static final int CHUNK_BITS = 30;
+
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    private final Path file;
+
+    private final int heapNodes;
+
+    /**
+     * Keys plus one, so that 0 is an empty slot, and packed numbers of the heap table.
+     */
+    private final long[] heapKeys;
+
+    private final long[] heapValues;
+
+    private int heapSize;
+
+    private MappedByteBuffer[] chunks;
+
+    private long capacity;
+
+    private long size;
+
+    private long expanded;
+
+    private long nanos;
+
+    /**
+     * Opens the table of the file, or creates it when there is no such file.
+     *
+     * @param heapNodes the number of nodes kept in the heap before they are spilled to the file, at most
+     *                  {@link #MAX_HEAP_NODES}
+     * @throws IOException when the file can't be read or isn't a table
+     */
+    ProofNumberTable(Path file, int heapNodes) throws IOException {
+        if (heapNodes < 1 || heapNodes > MAX_HEAP_NODES) {
+            throw new IllegalArgumentException("Cannot keep " + heapNodes + " nodes in the heap");
+        }
+        this.file = file;
+        this.heapNodes = heapNodes;
+        int heapCapacity = Integer.highestOneBit(heapNodes) << 2;
+        heapKeys = new long[heapCapacity];
+        heapValues = new long[heapCapacity];
+        if (Files.exists(file)) {
+            open();
+        } else {
+            create(file, MIN_CAPACITY);
+            map(file, MIN_CAPACITY);
+            writeHeader();
+        }
+    }
+
+    private void open() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a proof number table of version " + VERSION);
+            }
+            if (channel.size() != HEADER_BYTES + header.getLong(8) * ENTRY_BYTES) {
+                throw new IOException(file + " is truncated");
+            }
+        }
+        map(file, 0);
+        MappedByteBuffer header = chunks[0];
+        size = count();
+        expanded = header.getLong(24);
+        nanos = header.getLong(32);
+    }
+
+    /**
+     * @return the number of entries of the file
+     */
+    private long count() {
+        long count = 0;
+        for (long slot = 0; slot < capacity; slot++) {
+            long offset = HEADER_BYTES + slot * ENTRY_BYTES;
+            if (chunks[(int) (offset >>> CHUNK_BITS)].getLong((int) (offset & CHUNK_MASK)) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void create(Path file, long capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            // The file is sparse and reads as zeros, that is as empty slots
+            channel.write(ByteBuffer.allocate(1), HEADER_BYTES + capacity * ENTRY_BYTES - 1);
+        }
+    }
+
+    /**
+     * @param capacity the capacity of a new file, 0 to read it from the header
+     */
+    private void map(Path file, long capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long bytes = channel.size();
+            chunks = new MappedByteBuffer[(int) ((bytes + CHUNK_MASK) >>> CHUNK_BITS)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = (long) i << CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(bytes - start, 1L << CHUNK_BITS));
+            }
+        }
+        this.capacity = capacity != 0 ? capacity : chunks[0].getLong(8);
+    }
+
+    private void writeHeader() {
+        MappedByteBuffer header = chunks[0];
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putLong(8, capacity);
+        header.putLong(16, size);
+        header.putLong(24, expanded);
+        header.putLong(32, nanos);
+    }
+
+    static long pack(int proof, int disproof) {
+        return (long) proof << 32 | disproof;
+    }
+
+    static int proof(long numbers) {
+        return (int) (numbers >>> 32);
+    }
+
+    static int disproof(long numbers) {
+        return (int) numbers;
+    }
+
+    /**
+     * @return the numbers of the node packed by {@link #pack(int, int)}, or {@link #ABSENT}
+     */
+    long get(long key) {
+        int mask = heapKeys.length - 1;
+        for (int slot = (int) hash(key) & mask; heapKeys[slot] != 0; slot = (slot + 1) & mask) {
+            if (heapKeys[slot] == key + 1) {
+                return heapValues[slot];
+            }
+        }
+        for (long slot = hash(key) & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            long offset = HEADER_BYTES + slot * ENTRY_BYTES;
+            MappedByteBuffer chunk = chunks[(int) (offset >>> CHUNK_BITS)];
+            long stored = chunk.getLong((int) (offset & CHUNK_MASK));
+            if (stored == 0) {
+                return ABSENT;
+            }
+            if (stored == key + 1) {
+                return chunk.getLong((int) (offset & CHUNK_MASK) + 8);
+            }
+        }
+    }
+
+    void put(long key, int proof, int disproof) throws IOException {
+        int mask = heapKeys.length - 1;
+        int slot = (int) hash(key) & mask;
+        while (heapKeys[slot] != 0 && heapKeys[slot] != key + 1) {
+            slot = (slot + 1) & mask;
+        }
+        if (heapKeys[slot] == 0) {
+            heapKeys[slot] = key + 1;
+            heapSize++;
+        }
+        heapValues[slot] = pack(proof, disproof);
+        if (heapSize >= heapNodes) {
+            spill();
+        }
+    }
+
+    private static long hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ hash >>> 29;
+    }
+
+    /**
+     * Moves the nodes of the heap to the file.
+     */
+    private void spill() throws IOException {
+        for (int slot = 0; slot < heapKeys.length; slot++) {
+            if (heapKeys[slot] != 0) {
+                if (2 * (size + 1) > capacity) {
+                    grow();
+                }
+                putMapped(heapKeys[slot], heapValues[slot]);
+            }
+        }
+        Arrays.fill(heapKeys, 0);
+        heapSize = 0;
+        chunks[0].putLong(16, size);
+    }
+
+    private void putMapped(long storedKey, long value) {
+        for (long slot = hash(storedKey - 1) & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            long offset = HEADER_BYTES + slot * ENTRY_BYTES;
+            MappedByteBuffer chunk = chunks[(int) (offset >>> CHUNK_BITS)];
+            int position = (int) (offset & CHUNK_MASK);
+            long stored = chunk.getLong(position);
+            if (stored == 0 || stored == storedKey) {
+                chunk.putLong(position + 8, value);
+                if (stored == 0) {
+                    chunk.putLong(position, storedKey);
+                    size++;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Rehashes the file into one twice as large, which replaces it once complete.
+     */
+    private void grow() throws IOException {
+        MappedByteBuffer[] oldChunks = chunks;
+        long oldCapacity = capacity;
+        Path grown = file.resolveSibling(file.getFileName() + ".grow");
+        Files.deleteIfExists(grown);
+        create(grown, 2 * capacity);
+        map(grown, 2 * capacity);
+        size = 0;
+        for (long slot = 0; slot < oldCapacity; slot++) {
+            long offset = HEADER_BYTES + slot * ENTRY_BYTES;
+            MappedByteBuffer chunk = oldChunks[(int) (offset >>> CHUNK_BITS)];
+            long stored = chunk.getLong((int) (offset & CHUNK_MASK));
+            if (stored != 0) {
+                putMapped(stored, chunk.getLong((int) (offset & CHUNK_MASK) + 8));
+            }
+        }
+        writeHeader();
+        force();
+        Files.move(grown, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    /**
+     * Spills the heap and forces the file to the disk, with the counters of all the runs until now.
+     *
+     * @param expanded the nodes expanded by all the runs
+     * @param nanos the time spent by all the runs
+     */
+    void checkpoint(long expanded, long nanos) throws IOException {
+        spill();
+        this.expanded = expanded;
+        this.nanos = nanos;
+        writeHeader();
+        force();
+    }
+
+    /**
+     * @return the nodes expanded by the runs until the last checkpoint
+     */
+    long expanded() {
+        return expanded;
+    }
+
+    /**
+     * @return the time spent by the runs until the last checkpoint
+     */
+    long nanos() {
+        return nanos;
+    }
+
+    int heapSize() {
+        return heapSize;
+    }
+
+    long mappedSize() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkpoint(expanded, nanos);
+    }
+}
@@ -4,21 +4,74 @@ import pylos.game.command.Command;
 import pylos.game.command.Move;
 import pylos.game.command.Put;
 import pylos.game.command.Remove;
-import pylos.game.internal.PylosBuilder;
+import pylos.game.internal.Bitboard;
+import pylos.game.internal.Symmetry;
+import pylos.game.internal.Zobrist;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public class Pylos {
 
-    private static final long MAX_NUMBER_OF_BALLS = 15L;
+    private static final int MAX_NUMBER_OF_BALLS = 15;
 
-    private final Map<String, BallPosition> ballPositionsByCoordinates;
+    private static final Color[] COLORS = Color.values();
 
-    private final List<Command> nextMoves;
+    private static final State[] STATES = State.values();
+
+    private static final Put[] PUTS = new Put[Bitboard.SIZE];
+
+    private static final Remove[] REMOVES = new Remove[Bitboard.SIZE];
+
+    private static final Move[][] MOVES = new Move[Bitboard.SIZE][Bitboard.SIZE];
+
+    static {
+        for (int index = 0; index < Bitboard.SIZE; index++) {
+            PUTS[index] = new Put(Bitboard.coordinates(index));
+            REMOVES[index] = new Remove(Bitboard.coordinates(index));
+            for (int to = 0; to < Bitboard.SIZE; to++) {
+                MOVES[index][to] = new Move(Bitboard.coordinates(index), Bitboard.coordinates(to));
+            }
+        }
+    }
+
+    private int whiteBalls;
+
+    private int blackBalls;
+
+    /**
+     * Positions accepting a ball, kept up to date on each put and remove.
+     */
+    private int freeToPut;
+
+    /**
+     * Positions having a ball on top of them, kept up to date on each put and remove.
+     */
+    private int covered;
+
+    /**
+     * Zobrist key of the position, kept up to date on each change of balls, color or state.
+     */
+    private long key;
+
+    /**
+     * Next moves computed from the masks above, null until asked for since last command.
+     */
+    private List<Command> nextMoves;
+
+    private boolean verifyNextMoves = Boolean.getBoolean("pylos.verifyNextMoves");
+
+    /**
+     * Three longs per applied command: the packed state, the derived masks and the key before it.
+     */
+    private long[] history = new long[96];
+
+    private int historySize;
 
     private Color currentColor;
 
@@ -27,55 +80,263 @@ public class Pylos {
     public Pylos() {
         currentColor = Color.WHITE;
         currentState = State.CLASSIC;
-        ballPositionsByCoordinates = new PylosBuilder(this).createBallPositions();
-        nextMoves = computeNextMoves();
+        freeToPut = Bitboard.freeToPut(0);
+        covered = 0;
+        key = Zobrist.key(0, 0, currentColor, currentState.ordinal());
+    }
+
+    /**
+     * Copies the state of another game. The board topology is shared by all games, so this only copies a few ints.
+     * The copy starts without history: it can't undo the commands applied to the other game.
+     */
+    public Pylos(Pylos other) {
+        whiteBalls = other.whiteBalls;
+        blackBalls = other.blackBalls;
+        freeToPut = other.freeToPut;
+        covered = other.covered;
+        key = other.key;
+        nextMoves = other.nextMoves;
+        verifyNextMoves = other.verifyNextMoves;
+        currentColor = other.currentColor;
+        currentState = other.currentState;
     }
 
     public void apply(Command command) {
-        if (!nextMoves.contains(command)) {
-            throw new IllegalArgumentException(command + " is not applicable. Only " + nextMoves + " are applicable");
+        if (!isApplicable(command)) {
+            throw new IllegalArgumentException(command + " is not applicable. Only " + nextMoveList() + " are applicable");
         }
+        saveHistory();
         if (command instanceof Put putCommand) {
-            put(putCommand.coordinates());
+            put(Bitboard.index(putCommand.coordinates()));
         } else if (command instanceof Move moveCommand) {
-            move(moveCommand.coordinatesFrom(), moveCommand.coordinatesTo());
+            move(Bitboard.index(moveCommand.coordinatesFrom()), Bitboard.index(moveCommand.coordinatesTo()));
         } else if (command instanceof Remove removeCommand) {
-            remove(removeCommand.coordinates());
+            remove(Bitboard.index(removeCommand.coordinates()));
         } else if (command.equals(Command.pass)) {
             pass();
         }
-        nextMoves.clear();
-        nextMoves.addAll(computeNextMoves());
+        nextMoves = null;
+        if (verifyNextMoves) {
+            verifyNextMoves();
+        }
+    }
+
+    /**
+     * Restores the state the game had before the last applied command.
+     *
+     * @throws IllegalStateException when there is no command to undo
+     */
+    public void undo() {
+        if (historySize == 0) {
+            throw new IllegalStateException("No command to undo");
+        }
+        historySize -= 3;
+        long state = history[historySize];
+        long derived = history[historySize + 1];
+        key = history[historySize + 2];
+        whiteBalls = (int) state & Bitboard.FULL;
+        blackBalls = (int) (state >>> Bitboard.SIZE) & Bitboard.FULL;
+        currentColor = COLORS[(int) (state >>> 2 * Bitboard.SIZE) & 1];
+        currentState = STATES[(int) (state >>> 2 * Bitboard.SIZE + 1)];
+        freeToPut = (int) derived;
+        covered = (int) (derived >>> Integer.SIZE);
+        nextMoves = null;
+    }
+
+    public boolean canUndo() {
+        return historySize > 0;
+    }
+
+    private void saveHistory() {
+        if (historySize == history.length) {
+            history = Arrays.copyOf(history, 2 * historySize);
+        }
+        history[historySize++] = whiteBalls
+                | (long) blackBalls << Bitboard.SIZE
+                | (long) currentColor.ordinal() << 2 * Bitboard.SIZE
+                | (long) currentState.ordinal() << 2 * Bitboard.SIZE + 1;
+        history[historySize++] = freeToPut & 0xFFFFFFFFL | (long) covered << Integer.SIZE;
+        history[historySize++] = key;
+    }
+
+    /**
+     * When enabled, each command is followed by a full recomputation of the next moves and of the key, which must
+     * match the ones maintained incrementally. Also enabled by the {@code pylos.verifyNextMoves} system property.
+     */
+    public void setVerifyNextMoves(boolean verifyNextMoves) {
+        this.verifyNextMoves = verifyNextMoves;
+    }
+
+    private void verifyNextMoves() {
+        int expectedFreeToPut = Bitboard.freeToPut(occupied());
+        int expectedCovered = Bitboard.covered(occupied());
+        if (freeToPut != expectedFreeToPut || covered != expectedCovered) {
+            throw new IllegalStateException("Next moves " + nextMoveList() + " should be "
+                    + computeNextMoves(expectedFreeToPut, expectedCovered));
+        }
+        long expectedKey = Zobrist.key(whiteBalls, blackBalls, currentColor, currentState.ordinal());
+        if (key != expectedKey) {
+            throw new IllegalStateException("Key " + key + " should be " + expectedKey);
+        }
+    }
+
+    private boolean isApplicable(Command command) {
+        if (command instanceof Put putCommand) {
+            int index = Bitboard.index(putCommand.coordinates());
+            return currentState == State.CLASSIC && index >= 0 && (freeToPut & Bitboard.bit(index)) != 0;
+        } else if (command instanceof Move moveCommand) {
+            int from = Bitboard.index(moveCommand.coordinatesFrom());
+            int to = Bitboard.index(moveCommand.coordinatesTo());
+            return currentState == State.CLASSIC && from >= 0 && to >= 0
+                    && (freeToTake() & Bitboard.bit(from)) != 0
+                    && (movableTo(to) & Bitboard.bit(from)) != 0;
+        } else if (command instanceof Remove removeCommand) {
+            int index = Bitboard.index(removeCommand.coordinates());
+            return currentState != State.CLASSIC && index >= 0 && (freeToTake() & Bitboard.bit(index)) != 0;
+        }
+        return command == Command.pass && currentState != State.CLASSIC;
+    }
+
+    /**
+     * Zobrist key of the position: balls, color to play and state. Two games reaching the same position through
+     * different commands have the same key.
+     */
+    public long zobristKey() {
+        return key;
+    }
+
+    /**
+     * Zobrist key of the canonical form of the position, its image by {@link #canonicalSymmetry()}. Positions that
+     * are symmetric to each other have the same canonical key.
+     */
+    public long canonicalKey() {
+        int symmetry = canonicalSymmetry();
+        return Zobrist.key(Symmetry.transformMask(symmetry, whiteBalls), Symmetry.transformMask(symmetry, blackBalls),
+                currentColor, currentState.ordinal());
+    }
+
+    /**
+     * @return the {@link Symmetry} mapping the position to its canonical form, the image with the smallest masks
+     */
+    public int canonicalSymmetry() {
+        return canonicalSymmetry(whiteBalls, blackBalls);
+    }
+
+    /**
+     * @return the {@link Symmetry} mapping the balls to their canonical form, the image with the smallest masks
+     */
+    static int canonicalSymmetry(int whiteBalls, int blackBalls) {
+        int canonical = 0;
+        long smallest = (long) whiteBalls << Bitboard.SIZE | blackBalls;
+        for (int symmetry = 1; symmetry < Symmetry.COUNT; symmetry++) {
+            long image = (long) Symmetry.transformMask(symmetry, whiteBalls) << Bitboard.SIZE
+                    | Symmetry.transformMask(symmetry, blackBalls);
+            if (image < smallest) {
+                smallest = image;
+                canonical = symmetry;
+            }
+        }
+        return canonical;
     }
 
-    void specialMove() {
-        currentState = State.SPECIAL1;
+    private void specialMove() {
+        setState(State.SPECIAL1);
     }
 
     private void switchColor() {
-        currentState = State.CLASSIC;
+        setState(State.CLASSIC);
         if (otherColorHaveStillBallsToPut()) {
             currentColor = otherColor();
+            key ^= Zobrist.blackToPlay();
         }
     }
 
+    private void setState(State state) {
+        key ^= Zobrist.state(currentState.ordinal()) ^ Zobrist.state(state.ordinal());
+        currentState = state;
+    }
+
     Optional<BallPosition> getBallPosition(String coordinates) {
-        return Optional.ofNullable(ballPositionsByCoordinates.get(coordinates));
+        int index = Bitboard.index(coordinates);
+        return index < 0 ? Optional.empty() : Optional.of(new BallPosition(this, index));
+    }
+
+    Color colorAt(int index) {
+        if ((whiteBalls & Bitboard.bit(index)) != 0) {
+            return Color.WHITE;
+        }
+        if ((blackBalls & Bitboard.bit(index)) != 0) {
+            return Color.BLACK;
+        }
+        return null;
+    }
+
+    int occupied() {
+        return whiteBalls | blackBalls;
+    }
+
+    int balls(Color color) {
+        return color == Color.WHITE ? whiteBalls : blackBalls;
+    }
+
+    private void setBalls(Color color, int balls) {
+        if (color == Color.WHITE) {
+            whiteBalls = balls;
+        } else {
+            blackBalls = balls;
+        }
+    }
+
+    /**
+     * A ball only changes which positions above and below it accept a ball or can be taken.
+     */
+    private void ballAdded(int index) {
+        freeToPut &= ~Bitboard.bit(index);
+        for (int uppers = Bitboard.cover(index); uppers != 0; uppers &= uppers - 1) {
+            int upper = Integer.numberOfTrailingZeros(uppers);
+            if ((occupied() & Bitboard.support(upper)) == Bitboard.support(upper)) {
+                freeToPut |= Bitboard.bit(upper);
+            }
+        }
+        covered |= Bitboard.support(index);
+    }
+
+    private void ballRemoved(int index) {
+        freeToPut = freeToPut & ~Bitboard.cover(index) | Bitboard.bit(index);
+        covered &= ~Bitboard.support(index);
+        for (int lowers = Bitboard.support(index); lowers != 0; lowers &= lowers - 1) {
+            int lower = Integer.numberOfTrailingZeros(lowers);
+            if ((occupied() & Bitboard.cover(lower)) != 0) {
+                covered |= Bitboard.bit(lower);
+            }
+        }
     }
 
-    private void put(String coordinates) {
-        ballPositionsByCoordinates.get(coordinates).put(currentColor);
+    private void put(int index) {
+        int balls = balls(currentColor) | Bitboard.bit(index);
+        setBalls(currentColor, balls);
+        key ^= Zobrist.ball(currentColor, index);
+        ballAdded(index);
+        if (Bitboard.completesPattern(balls, index)) {
+            specialMove();
+        }
         if (currentState == State.CLASSIC) {
             switchColor();
         }
     }
 
-    private void remove(String coordinates) {
-        ballPositionsByCoordinates.get(coordinates).remove();
+    private void take(int index) {
+        setBalls(currentColor, balls(currentColor) & ~Bitboard.bit(index));
+        key ^= Zobrist.ball(currentColor, index);
+        ballRemoved(index);
+    }
+
+    private void remove(int index) {
+        take(index);
         if (currentState.equals(State.SPECIAL2)) {
             switchColor();
         } else {
-            currentState = State.SPECIAL2;
+            setState(State.SPECIAL2);
         }
     }
 
@@ -83,56 +344,81 @@ public class Pylos {
         switchColor();
     }
 
-    private void move(String coordinatesFrom, String coordinatesTo) {
-        ballPositionsByCoordinates.get(coordinatesFrom).remove();
-        ballPositionsByCoordinates.get(coordinatesTo).put(currentColor);
-        if (currentState == State.CLASSIC) {
-            switchColor();
-        }
+    private void move(int from, int to) {
+        take(from);
+        put(to);
     }
 
     public boolean gameOver() {
-        return allPositions().allMatch(BallPosition::isNotEmpty);
+        return occupied() == Bitboard.FULL;
+    }
+
+    /**
+     * @return the color of the ball on top of the pyramid, which wins the game, empty until the game is over
+     */
+    public Optional<Color> winner() {
+        return Optional.ofNullable(colorAt(Bitboard.SIZE - 1));
+    }
+
+    public Color currentColor() {
+        return currentColor;
+    }
+
+    State currentState() {
+        return currentState;
     }
 
     public PylosRound nextMoves() {
-        return new PylosRound(currentColor, nextMoves);
+        return new PylosRound(currentColor, nextMoveList());
     }
 
-    private List<Command> computeNextMoves() {
+    private List<Command> nextMoveList() {
+        if (nextMoves == null) {
+            nextMoves = Collections.unmodifiableList(computeNextMoves(freeToPut, covered));
+        }
+        return nextMoves;
+    }
+
+    private int freeToTake() {
+        return balls(currentColor) & ~covered;
+    }
+
+    /**
+     * @return lower balls that could be moved to {@code upper}, regardless of their color
+     */
+    private int movableTo(int upper) {
+        if ((freeToPut & Bitboard.UPPER_LEVELS & Bitboard.bit(upper)) == 0) {
+            return 0;
+        }
+        return Bitboard.belowLevel(Bitboard.level(upper)) & ~Bitboard.support(upper);
+    }
+
+    private List<Command> computeNextMoves(int freeToPut, int covered) {
         List<Command> commands = new ArrayList<>();
+        int freeToTake = balls(currentColor) & ~covered;
         if (currentState.equals(State.CLASSIC)) {
-            freeToPutPositions().map(ballPosition -> new Put(ballPosition.coordinates)).forEach(commands::add);
-
-            List<BallPosition> freeToTakePositions = freeToTakePositions().toList();
-            freeToPutPositions()
-                    .filter(c -> c.level > 1)
-                    .forEach(upper ->
-                            freeToTakePositions.stream()
-                                    .filter(lower -> lower.level < upper.level)
-                                    .filter(upper::isNotOnTopOf)
-                                    .map(lower -> new Move(lower.coordinates, upper.coordinates))
-                                    .forEach(commands::add));
+            for (int free = freeToPut; free != 0; free &= free - 1) {
+                commands.add(PUTS[Integer.numberOfTrailingZeros(free)]);
+            }
+            for (int uppers = freeToPut & Bitboard.UPPER_LEVELS; uppers != 0; uppers &= uppers - 1) {
+                int upper = Integer.numberOfTrailingZeros(uppers);
+                int lowers = freeToTake & Bitboard.belowLevel(Bitboard.level(upper)) & ~Bitboard.support(upper);
+                for (; lowers != 0; lowers &= lowers - 1) {
+                    commands.add(MOVES[Integer.numberOfTrailingZeros(lowers)][upper]);
+                }
+            }
         } else {
-            commands.addAll(freeToTakePositions().map(ballPosition -> new Remove(ballPosition.coordinates)).toList());
+            for (int free = freeToTake; free != 0; free &= free - 1) {
+                commands.add(REMOVES[Integer.numberOfTrailingZeros(free)]);
+            }
             commands.add(Command.pass);
         }
 
         return commands;
     }
 
-    private Stream<BallPosition> freeToPutPositions() {
-        return ballPositionsByCoordinates.values().stream().filter(BallPosition::canAcceptBall);
-    }
-
-    private Stream<BallPosition> freeToTakePositions() {
-        return ballPositionsByCoordinates.values().stream()
-                .filter(BallPosition::canBeTaken)
-                .filter(ballPosition -> ballPosition.getColor().map(currentColor::equals).orElse(false));
-    }
-
     public Stream<BallPosition> allPositions() {
-        return ballPositionsByCoordinates.values().stream();
+        return IntStream.range(0, Bitboard.SIZE).mapToObj(index -> new BallPosition(this, index));
     }
 
     private Color otherColor() {
@@ -144,9 +430,6 @@ public class Pylos {
     }
 
     private boolean otherColorHaveStillBallsToPut() {
-        return ballPositionsByCoordinates.values().stream()
-                .map(BallPosition::getColor)
-                .filter(maybeColor -> maybeColor.map(color -> color == otherColor()).orElse(false))
-                .count() < MAX_NUMBER_OF_BALLS;
+        return Integer.bitCount(balls(otherColor())) < MAX_NUMBER_OF_BALLS;
     }
 }
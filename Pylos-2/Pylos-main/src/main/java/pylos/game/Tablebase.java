@@ -0,0 +1,426 @@
+package pylos.game;
+
+import pylos.game.internal.Bitboard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Values of the positions with at most a given number of empty positions, solved by retrograde analysis and stored
+ * in a file that searches map in memory. The value of a position is a byte for the color to play: a win in d
+ * commands is d, a loss in d commands is -d, and {@link #UNKNOWN} a position that isn't solved. Removing balls can
+ * take the game out of the tablebase, so positions whose value depends on where it goes stay unknown.
+ * <p>
+ * Only positions waiting for a put or a move are stored, removals are searched from them on the fly. The file is the
+ * values in the order of a {@link PositionIndex} of the positions with 1 to maxEmpty empty positions, after a
+ * small header.
+ */
+public final class Tablebase {
+
+    public static final int UNKNOWN = 0;
+
+    /**
+     * Longer wins and losses are left unknown, as their distance doesn't fit in a byte.
+     */
+    public static final int MAX_DISTANCE = 127;
+
+    /**
+     * The most commands of a turn: a put or a move, then two removals or a removal and a pass.
+     */
+    private static final int MAX_TURN_COMMANDS = 3;
+
+    /**
+     * The file read by {@link #openDefault()}, unless the {@code pylos.tablebase} system property names another one.
+     */
+    public static final String DEFAULT_FILE = "pylos.tablebase";
+
+    private static final int MAGIC = 0x50594C54;
+
+    private static final int VERSION = 2;
+
+    private static final int HEADER_BYTES = 32;
+
+    /**
+     * A buffer maps at most 2GB, larger files are mapped as several chunks.
+     */
+    private static final int CHUNK_BITS = 30;
+
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    private static final int TOP = Bitboard.bit(Bitboard.SIZE - 1);
+
+    private static final Color[] COLORS = Color.values();
+
+    private final PositionIndex index;
+
+    private final MappedByteBuffer[] chunks;
+
+    private final LongAdder probes = new LongAdder();
+
+    private final LongAdder hits = new LongAdder();
+
+    private Tablebase(PositionIndex index, FileChannel channel, FileChannel.MapMode mode) throws IOException {
+        this.index = index;
+        long size = HEADER_BYTES + index.size();
+        chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+        for (int i = 0; i < chunks.length; i++) {
+            long start = (long) i << CHUNK_BITS;
+            chunks[i] = channel.map(mode, start, Math.min(size - start, 1L << CHUNK_BITS));
+        }
+    }
+
+    /**
+     * Maps a file written by {@link #generate(int, Path)}.
+     *
+     * @throws IOException when the file can't be read or isn't a tablebase
+     */
+    public static Tablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a tablebase of version " + VERSION);
+            }
+            PositionIndex index = new PositionIndex(1, header.getInt(8), header.getInt(24), header.getInt(28));
+            Tablebase tablebase = new Tablebase(index, channel, FileChannel.MapMode.READ_ONLY);
+            if (header.getLong(16) != tablebase.positions() || channel.size() != HEADER_BYTES + tablebase.positions()) {
+                throw new IOException(file + " is truncated");
+            }
+            return tablebase;
+        }
+    }
+
+    /**
+     * @return the tablebase of the {@code pylos.tablebase} system property or of {@link #DEFAULT_FILE}, empty when
+     * there is no such file or it can't be read
+     */
+    public static Optional<Tablebase> openDefault() {
+        Path file = Path.of(System.getProperty("pylos.tablebase", DEFAULT_FILE));
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(open(file));
+        } catch (IOException e) {
+            System.err.println("Tablebase not used: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Told about each pass of the analysis of {@link #generate(int, Path, Progress)}, which otherwise prints nothing.
+     */
+    @FunctionalInterface
+    public interface Progress {
+
+        Progress NONE = (distance, wins, losses) -> {
+        };
+
+        /**
+         * @param wins   the positions found won in distance commands
+         * @param losses the positions found lost in distance commands
+         */
+        void passDone(int distance, long wins, long losses);
+    }
+
+    /**
+     * Solves the positions with at most maxEmpty empty positions and writes their values to the file. The file is
+     * the memory of the analysis, so the tablebase doesn't have to fit in the heap.
+     *
+     * @return the tablebase, mapped for reading and writing
+     */
+    public static Tablebase generate(int maxEmpty, Path file) throws IOException {
+        return generate(maxEmpty, file, Progress.NONE);
+    }
+
+    /**
+     * Like {@link #generate(int, Path)}, telling the progress of the analysis after each pass.
+     */
+    public static Tablebase generate(int maxEmpty, Path file, Progress progress) throws IOException {
+        return generate(new PositionIndex(1, maxEmpty), file, progress);
+    }
+
+    /**
+     * Solves the positions of the index, which must number positions with at least one empty position. Positions
+     * that the index leaves out count as unknown, so an index that keeps fixed balls gives a small tablebase.
+     */
+    static Tablebase generate(PositionIndex index, Path file) throws IOException {
+        return generate(index, file, Progress.NONE);
+    }
+
+    private static Tablebase generate(PositionIndex index, Path file, Progress progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The file grows to the mapped size, filled with zeros, that is with unknown values
+            Tablebase tablebase = new Tablebase(index, channel, FileChannel.MapMode.READ_WRITE);
+            tablebase.solve(progress);
+            MappedByteBuffer header = tablebase.chunks[0];
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, index.maxEmpty());
+            header.putLong(16, tablebase.positions());
+            header.putInt(24, index.fixedWhite());
+            header.putInt(28, index.fixedBlack());
+            for (MappedByteBuffer chunk : tablebase.chunks) {
+                chunk.force();
+            }
+            return tablebase;
+        }
+    }
+
+    /**
+     * Retrograde analysis, one pass per distance: a pass stores the positions won or lost in exactly that many
+     * commands, whose values only depend on positions stored by the previous passes. A stored position is one to
+     * {@link #MAX_TURN_COMMANDS} commands away from the next ones, so a pass that stores nothing can still be
+     * followed by longer wins and losses: the analysis stops after as many passes in a row store nothing.
+     */
+    private void solve(Progress progress) {
+        int fixed = index.fixedWhite() | index.fixedBlack();
+        int fixedBlackCount = Integer.bitCount(index.fixedBlack());
+        int emptyPasses = 0;
+        for (int distance = 1; distance <= MAX_DISTANCE && emptyPasses < MAX_TURN_COMMANDS; distance++) {
+            long wins = 0;
+            long losses = 0;
+            for (int shape = 0; shape < index.shapeCount(); shape++) {
+                int occupied = index.shape(shape);
+                int free = occupied & ~fixed;
+                int count = Integer.bitCount(occupied);
+                for (Color color : COLORS) {
+                    for (int blackCount = PositionIndex.minBlackCount(count, color);
+                         blackCount <= PositionIndex.maxBlackCount(count, color); blackCount++) {
+                        long position = index.firstRank(shape, color, blackCount);
+                        if (position < 0) {
+                            continue;
+                        }
+                        // Subsets of the balls that aren't fixed in increasing order, which is the order of their rank
+                        int freeBlackCount = blackCount - fixedBlackCount;
+                        for (int subset = (1 << freeBlackCount) - 1; subset < 1 << Integer.bitCount(free);
+                             subset = nextSubset(subset)) {
+                            int black = PositionIndex.deposit(subset, free) | index.fixedBlack();
+                            int mover = color == Color.BLACK ? black : occupied & ~black;
+                            if (value(position) == UNKNOWN) {
+                                int value = classicValue(mover, occupied & ~mover, color.ordinal());
+                                if (Math.abs(value) == distance) {
+                                    setValue(position, value);
+                                    if (value > 0) {
+                                        wins++;
+                                    } else {
+                                        losses++;
+                                    }
+                                }
+                            }
+                            position++;
+                            if (subset == 0) {
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            progress.passDone(distance, wins, losses);
+            emptyPasses = wins + losses == 0 ? emptyPasses + 1 : 0;
+        }
+    }
+
+    /**
+     * @return the next larger int with as many bits set
+     */
+    private static int nextSubset(int subset) {
+        int lowest = subset & -subset;
+        int ripple = subset + lowest;
+        return (((ripple ^ subset) >>> 2) / lowest) | ripple;
+    }
+
+    /**
+     * @return the value of the game for its color to play, {@link #UNKNOWN} when the game isn't in the tablebase or
+     * isn't solved
+     */
+    public int probe(Pylos pylos) {
+        if (Bitboard.SIZE - Integer.bitCount(pylos.occupied()) > index.maxEmpty() || pylos.gameOver()) {
+            return UNKNOWN;
+        }
+        probes.increment();
+        Color color = pylos.currentColor();
+        int mover = pylos.balls(color);
+        int other = pylos.balls(COLORS[1 - color.ordinal()]);
+        int value = pylos.currentState() == State.CLASSIC
+                ? classicValue(mover, other, color.ordinal())
+                : specialValue(mover, other, color.ordinal(), pylos.currentState() == State.SPECIAL2);
+        if (value != UNKNOWN) {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * @return the color that wins the game when both play their best, empty when the tablebase doesn't know it
+     */
+    public Optional<Color> winner(Pylos pylos) {
+        int value = probe(pylos);
+        if (value == UNKNOWN) {
+            return Optional.empty();
+        }
+        return Optional.of(value > 0 ? pylos.currentColor() : COLORS[1 - pylos.currentColor().ordinal()]);
+    }
+
+    /**
+     * Value of a position waiting for a put or a move: the best of its commands. The value of a stored position is
+     * the one of its index.
+     */
+    private int classicValue(int mover, int other, int color) {
+        int occupied = mover | other;
+        int freeToPut = Bitboard.freeToPut(occupied);
+        int freeToTake = mover & ~Bitboard.covered(occupied);
+        Best best = new Best();
+        for (int free = freeToPut; free != 0; free &= free - 1) {
+            int put = Integer.numberOfTrailingZeros(free);
+            best.add(afterPut(mover | Bitboard.bit(put), other, color, put));
+        }
+        for (int uppers = freeToPut & Bitboard.UPPER_LEVELS; uppers != 0; uppers &= uppers - 1) {
+            int upper = Integer.numberOfTrailingZeros(uppers);
+            int lowers = freeToTake & Bitboard.belowLevel(Bitboard.level(upper)) & ~Bitboard.support(upper);
+            for (; lowers != 0; lowers &= lowers - 1) {
+                best.add(afterPut(mover & ~(lowers & -lowers) | Bitboard.bit(upper), other, color, upper));
+            }
+        }
+        return best.value();
+    }
+
+    /**
+     * Value of a position waiting for a removal or a pass, the ones that follow a completed pattern.
+     */
+    private int specialValue(int mover, int other, int color, boolean secondRemoval) {
+        Best best = new Best();
+        best.add(afterTurn(mover, other, color));
+        for (int free = mover & ~Bitboard.covered(mover | other); free != 0; free &= free - 1) {
+            int balls = mover & ~(free & -free);
+            best.add(secondRemoval ? afterTurn(balls, other, color) : plus(specialValue(balls, other, color, true), 1));
+        }
+        return best.value();
+    }
+
+    /**
+     * @return the value, for the color that played, of the put of a ball, alone or as part of a move
+     */
+    private int afterPut(int mover, int other, int color, int put) {
+        if ((mover | other) == Bitboard.FULL) {
+            return (mover & TOP) != 0 ? 1 : -1;
+        }
+        if (Bitboard.completesPattern(mover, put)) {
+            return plus(specialValue(mover, other, color, false), 1);
+        }
+        return afterTurn(mover, other, color);
+    }
+
+    /**
+     * @return the value, for the color that played, of the command ending its turn: the other color plays next,
+     * unless it has no ball left to put
+     */
+    private int afterTurn(int mover, int other, int color) {
+        if (Integer.bitCount(other) < PositionIndex.MAX_NUMBER_OF_BALLS) {
+            return plus(-storedValue(other, mover, 1 - color), 1);
+        }
+        return plus(storedValue(mover, other, color), 1);
+    }
+
+    private int storedValue(int mover, int other, int color) {
+        return color == Color.BLACK.ordinal() ? value(other, mover, Color.BLACK) : value(mover, other, Color.WHITE);
+    }
+
+    /**
+     * @return the value, for its color to play, of a position waiting for a put or a move, {@link #UNKNOWN} when it
+     * isn't stored or isn't solved
+     */
+    int value(int whiteBalls, int blackBalls, Color color) {
+        long position = index.rank(whiteBalls, blackBalls, color);
+        return position < 0 ? UNKNOWN : value(position);
+    }
+
+    /**
+     * @return the value of a position reached after the given number of commands, from the value of that position
+     */
+    private static int plus(int value, int commands) {
+        if (value == UNKNOWN || Math.abs(value) + commands > MAX_DISTANCE) {
+            return UNKNOWN;
+        }
+        return value > 0 ? value + commands : value - commands;
+    }
+
+    private int value(long position) {
+        long offset = HEADER_BYTES + position;
+        return chunks[(int) (offset >>> CHUNK_BITS)].get((int) (offset & CHUNK_MASK));
+    }
+
+    private void setValue(long position, int value) {
+        long offset = HEADER_BYTES + position;
+        chunks[(int) (offset >>> CHUNK_BITS)].put((int) (offset & CHUNK_MASK), (byte) value);
+    }
+
+    public int maxEmpty() {
+        return index.maxEmpty();
+    }
+
+    public long positions() {
+        return index.size();
+    }
+
+    public long probes() {
+        return probes.sum();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * The best value a color can reach by choosing among commands: the shortest win, or else the longest loss if all
+     * commands are known to lose.
+     */
+    private static final class Best {
+
+        private int shortestWin = Integer.MAX_VALUE;
+
+        private int longestLoss;
+
+        private boolean allLost = true;
+
+        void add(int value) {
+            if (value > 0) {
+                shortestWin = Math.min(shortestWin, value);
+            }
+            if (value >= 0) {
+                allLost = false;
+            } else {
+                longestLoss = Math.max(longestLoss, -value);
+            }
+        }
+
+        int value() {
+            if (shortestWin != Integer.MAX_VALUE) {
+                return shortestWin;
+            }
+            return allLost && longestLoss > 0 ? -longestLoss : UNKNOWN;
+        }
+    }
+
+    /**
+     * Generates a tablebase. Usage: Tablebase [maxEmpty] [file]
+     */
+    public static void main(String[] args) throws IOException {
+        int maxEmpty = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        Path file = Path.of(args.length > 1 ? args[1] : System.getProperty("pylos.tablebase", DEFAULT_FILE));
+        long start = System.nanoTime();
+        Tablebase tablebase = generate(maxEmpty, file, (distance, wins, losses) ->
+                System.out.printf("Distance %d: %d wins, %d losses, %.1f seconds%n", distance, wins, losses,
+                        (System.nanoTime() - start) / 1e9));
+        System.out.println("Wrote " + tablebase.positions() + " positions with at most " + maxEmpty
+                + " empty positions to " + file);
+    }
+}
@@ -0,0 +1,213 @@
+package pylos.game.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Topology of the pyramid as precomputed 30-bit masks, computed once and shared by all games. Bit {@code i} stands
+ * for the i-th ball position in the order a1..a4, b1..b4, c1..c4, d1..d4 (level 1), e1..g3 (level 2), h1..i2
+ * (level 3) and j1 (level 4).
+ * <p>
+ * A position {@code xy} of a level lies on top of {@code xy}, {@code (x+1)y}, {@code x(y+1)} and {@code (x+1)(y+1)}
+ * of the level below, so e1 lies on top of a1, b1, a2 and b2.
+ */
+public final class Bitboard {
+
+    public static final int SIZE = 30;
+
+    public static final int FULL = (1 << SIZE) - 1;
+
+    public static final int UPPER_LEVELS = FULL & ~0xFFFF;
+
+    private static final int[] FIRST_INDEX_OF_LEVEL = {0, 16, 25, 29};
+
+    private static final char[] FIRST_COLUMN_OF_LEVEL = {'a', 'e', 'h', 'j'};
+
+    private static final String[] COORDINATES = new String[SIZE];
+
+    private static final int[] LEVEL = new int[SIZE];
+
+    private static final int[] SUPPORT = new int[SIZE];
+
+    private static final int[] COVER = new int[SIZE];
+
+    private static final int[][] PATTERNS_BY_POSITION = new int[SIZE][];
+
+    private static final int[] PATTERNS;
+
+    static {
+        for (int level = 1; level <= 4; level++) {
+            int width = width(level);
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < width; y++) {
+                    int index = index(level, x, y);
+                    COORDINATES[index] = "" + (char) (FIRST_COLUMN_OF_LEVEL[level - 1] + x) + (y + 1);
+                    LEVEL[index] = level;
+                    if (level > 1) {
+                        SUPPORT[index] = bit(index(level - 1, x, y)) | bit(index(level - 1, x + 1, y))
+                                | bit(index(level - 1, x, y + 1)) | bit(index(level - 1, x + 1, y + 1));
+                    }
+                }
+            }
+        }
+        for (int upper = 0; upper < SIZE; upper++) {
+            for (int lower = 0; lower < SIZE; lower++) {
+                if ((SUPPORT[upper] & bit(lower)) != 0) {
+                    COVER[lower] |= bit(upper);
+                }
+            }
+        }
+
+        List<Integer> patterns = new ArrayList<>();
+        // squares: the four positions supporting an upper position
+        for (int upper = 0; upper < SIZE; upper++) {
+            if (SUPPORT[upper] != 0) {
+                patterns.add(SUPPORT[upper]);
+            }
+        }
+        // lines of the two first levels
+        for (int level = 1; level <= 2; level++) {
+            int width = width(level);
+            for (int a = 0; a < width; a++) {
+                int column = 0;
+                int row = 0;
+                for (int b = 0; b < width; b++) {
+                    column |= bit(index(level, a, b));
+                    row |= bit(index(level, b, a));
+                }
+                patterns.add(column);
+                patterns.add(row);
+            }
+        }
+        PATTERNS = patterns.stream().mapToInt(Integer::intValue).toArray();
+        for (int index = 0; index < SIZE; index++) {
+            int position = bit(index);
+            PATTERNS_BY_POSITION[index] = patterns.stream().mapToInt(Integer::intValue)
+                    .filter(pattern -> (pattern & position) != 0)
+                    .toArray();
+        }
+    }
+
+    private Bitboard() {
+    }
+
+    static int width(int level) {
+        return 5 - level;
+    }
+
+    static int index(int level, int x, int y) {
+        return FIRST_INDEX_OF_LEVEL[level - 1] + x * width(level) + y;
+    }
+
+    public static int bit(int index) {
+        return 1 << index;
+    }
+
+    /**
+     * @return index of the position, or -1 when coordinates don't designate any position
+     */
+    public static int index(String coordinates) {
+        if (coordinates == null || coordinates.length() != 2) {
+            return -1;
+        }
+        for (int level = 1; level <= 4; level++) {
+            int x = coordinates.charAt(0) - FIRST_COLUMN_OF_LEVEL[level - 1];
+            int y = coordinates.charAt(1) - '1';
+            if (x >= 0 && x < width(level) && y >= 0 && y < width(level)) {
+                return index(level, x, y);
+            }
+        }
+        return -1;
+    }
+
+    public static String coordinates(int index) {
+        return COORDINATES[index];
+    }
+
+    public static int level(int index) {
+        return LEVEL[index];
+    }
+
+    /**
+     * @return positions {@code index} lies on top of
+     */
+    public static int support(int index) {
+        return SUPPORT[index];
+    }
+
+    /**
+     * @return positions lying on top of {@code index}
+     */
+    public static int cover(int index) {
+        return COVER[index];
+    }
+
+    public static int patternCount() {
+        return PATTERNS.length;
+    }
+
+    public static int pattern(int i) {
+        return PATTERNS[i];
+    }
+
+    /**
+     * @return true when one of the squares or lines {@code index} belongs to is filled by {@code balls}
+     */
+    public static boolean completesPattern(int balls, int index) {
+        for (int pattern : PATTERNS_BY_POSITION[index]) {
+            if ((balls & pattern) == pattern) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean canAcceptBall(int occupied, int index) {
+        return (occupied & bit(index)) == 0
+                && (occupied & COVER[index]) == 0
+                && (occupied & SUPPORT[index]) == SUPPORT[index];
+    }
+
+    public static boolean canBeTaken(int occupied, int index) {
+        return (occupied & bit(index)) != 0 && (occupied & COVER[index]) == 0;
+    }
+
+    /**
+     * @return empty positions whose support is complete
+     */
+    public static int freeToPut(int occupied) {
+        int free = ~occupied & 0xFFFF;
+        for (int upper = ~occupied & UPPER_LEVELS; upper != 0; upper &= upper - 1) {
+            int index = Integer.numberOfTrailingZeros(upper);
+            if ((occupied & SUPPORT[index]) == SUPPORT[index]) {
+                free |= bit(index);
+            }
+        }
+        return free;
+    }
+
+    /**
+     * @return positions having a ball on top of them
+     */
+    public static int covered(int occupied) {
+        int covered = 0;
+        for (int upper = occupied & UPPER_LEVELS; upper != 0; upper &= upper - 1) {
+            covered |= SUPPORT[Integer.numberOfTrailingZeros(upper)];
+        }
+        return covered;
+    }
+
+    /**
+     * @return balls of {@code balls} that have no ball on top of them
+     */
+    public static int freeToTake(int occupied, int balls) {
+        return balls & ~covered(occupied);
+    }
+
+    /**
+     * @return positions strictly below {@code level}
+     */
+    public static int belowLevel(int level) {
+        return level > 1 ? bit(FIRST_INDEX_OF_LEVEL[level - 1]) - 1 : 0;
+    }
+}
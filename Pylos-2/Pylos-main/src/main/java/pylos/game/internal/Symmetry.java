@@ -0,0 +1,78 @@
+package pylos.game.internal;
+
+/**
+ * The 8 symmetries of the pyramid: rotations and reflections of the 4x4 base, applied in the same way to the levels
+ * above it. Symmetry 0 is the identity. Positions that are images of each other have the same value, so that tables
+ * and analyses can be keyed on a single canonical form.
+ */
+public final class Symmetry {
+
+    public static final int COUNT = 8;
+
+    private static final int[][] PERMUTATIONS = new int[COUNT][Bitboard.SIZE];
+
+    private static final int[] INVERSES = new int[COUNT];
+
+    /**
+     * Images of the masks of each byte of the positions, so that a mask is transformed a byte at a time.
+     */
+    private static final int[][][] BYTE_IMAGES = new int[COUNT][4][256];
+
+    static {
+        for (int level = 1; level <= 4; level++) {
+            int last = Bitboard.width(level) - 1;
+            for (int x = 0; x < Bitboard.width(level); x++) {
+                for (int y = 0; y < Bitboard.width(level); y++) {
+                    // rotations by a quarter turn, then the same rotations after a reflection
+                    int[][] images = {
+                            {x, y}, {y, last - x}, {last - x, last - y}, {last - y, x},
+                            {x, last - y}, {last - x, y}, {y, x}, {last - y, last - x}};
+                    for (int symmetry = 0; symmetry < COUNT; symmetry++) {
+                        PERMUTATIONS[symmetry][Bitboard.index(level, x, y)] =
+                                Bitboard.index(level, images[symmetry][0], images[symmetry][1]);
+                    }
+                }
+            }
+        }
+        for (int symmetry = 0; symmetry < COUNT; symmetry++) {
+            for (int index = 0; index < Bitboard.SIZE; index++) {
+                int position = Bitboard.bit(PERMUTATIONS[symmetry][index]);
+                for (int mask = 0; mask < 256; mask++) {
+                    if ((mask & Bitboard.bit(index & 7)) != 0) {
+                        BYTE_IMAGES[symmetry][index >>> 3][mask] |= position;
+                    }
+                }
+            }
+        }
+        for (int symmetry = 0; symmetry < COUNT; symmetry++) {
+            for (int other = 0; other < COUNT; other++) {
+                if (transform(other, transform(symmetry, 1)) == 1 && transform(other, transform(symmetry, 4)) == 4) {
+                    INVERSES[symmetry] = other;
+                }
+            }
+        }
+    }
+
+    private Symmetry() {
+    }
+
+    /**
+     * @return image of the position {@code index}
+     */
+    public static int transform(int symmetry, int index) {
+        return PERMUTATIONS[symmetry][index];
+    }
+
+    /**
+     * @return image of the positions of {@code mask}
+     */
+    public static int transformMask(int symmetry, int mask) {
+        int[][] images = BYTE_IMAGES[symmetry];
+        return images[0][mask & 0xFF] | images[1][mask >>> 8 & 0xFF] | images[2][mask >>> 16 & 0xFF]
+                | images[3][mask >>> 24];
+    }
+
+    public static int inverse(int symmetry) {
+        return INVERSES[symmetry];
+    }
+}
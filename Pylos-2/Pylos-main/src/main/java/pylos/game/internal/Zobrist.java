@@ -0,0 +1,67 @@
+package pylos.game.internal;
+
+import pylos.game.Color;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys of the position features. XOR-ing the keys of the features of a position gives its key, which can then
+ * be updated feature by feature. Keys are drawn from a fixed seed so that they are stable from one run to another.
+ * <p>
+ * Reserve counts aren't hashed separately: each color has 15 balls minus the ones on the board.
+ */
+public final class Zobrist {
+
+    private static final long[][] BALLS = new long[2][Bitboard.SIZE];
+
+    private static final long[] STATES = new long[3];
+
+    private static final long BLACK_TO_PLAY;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x9E3779B97F4A7C15L);
+        for (long[] keys : BALLS) {
+            for (int index = 0; index < Bitboard.SIZE; index++) {
+                keys[index] = random.nextLong();
+            }
+        }
+        for (int state = 0; state < STATES.length; state++) {
+            STATES[state] = random.nextLong();
+        }
+        BLACK_TO_PLAY = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long ball(Color color, int index) {
+        return BALLS[color.ordinal()][index];
+    }
+
+    /**
+     * @param state ordinal of the state
+     */
+    public static long state(int state) {
+        return STATES[state];
+    }
+
+    public static long blackToPlay() {
+        return BLACK_TO_PLAY;
+    }
+
+    /**
+     * Computes a key from scratch.
+     *
+     * @param state ordinal of the state
+     */
+    public static long key(int whiteBalls, int blackBalls, Color colorToPlay, int state) {
+        long key = STATES[state] ^ (colorToPlay == Color.BLACK ? BLACK_TO_PLAY : 0L);
+        for (int bits = whiteBalls; bits != 0; bits &= bits - 1) {
+            key ^= ball(Color.WHITE, Integer.numberOfTrailingZeros(bits));
+        }
+        for (int bits = blackBalls; bits != 0; bits &= bits - 1) {
+            key ^= ball(Color.BLACK, Integer.numberOfTrailingZeros(bits));
+        }
+        return key;
+    }
+}
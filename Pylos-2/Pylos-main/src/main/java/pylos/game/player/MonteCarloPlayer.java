@@ -0,0 +1,385 @@
+package pylos.game.player;
+
+import pylos.game.Color;
+import pylos.game.Playout;
+import pylos.game.Pylos;
+import pylos.game.Tablebase;
+import pylos.game.command.Command;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+/**
+ * Monte Carlo tree search with the UCT selection rule. Each iteration descends the tree from the current position,
+ * adds the children of the leaf it reaches, finishes the game with random commands and counts the result on the way
+ * back. The command played is the most visited one, so the player gets stronger with the time it is given.
+ * <p>
+ * The tree lives in primitive arrays rather than in one object per node. The subtree of the position reached after
+ * the opponent's reply is kept for the next call, so the search goes on where it left off.
+ */
+public class MonteCarloPlayer implements Player {
+
+    static final double EXPLORATION = Math.sqrt(2);
+
+    /**
+     * How many commands below the one played the next position is looked for, enough for the opponent's move and
+     * removals.
+     */
+    static final int REUSE_DEPTH = 4;
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    static final int DEFAULT_MAX_NODES = 1 << 20;
+
+    private final Pylos pylos;
+
+    private final int maxIterations;
+
+    private final long budgetNanos;
+
+    private final int maxNodes;
+
+    private final SplittableRandom random;
+
+    private final Playout playout;
+
+    private Tablebase tablebase;
+
+    /**
+     * Children of node i are the nodes firstChild[i] to firstChild[i] + childCount[i] - 1, in the order of the next
+     * moves of its position. childCount is -1 until the node is expanded.
+     */
+    private int[] parent = new int[INITIAL_CAPACITY];
+
+    private int[] firstChild = new int[INITIAL_CAPACITY];
+
+    private int[] childCount = new int[INITIAL_CAPACITY];
+
+    private int[] visits = new int[INITIAL_CAPACITY];
+
+    /**
+     * Games won by the color that played the command leading to the node, draws counting half.
+     */
+    private double[] wins = new double[INITIAL_CAPACITY];
+
+    /**
+     * Zobrist key of the position of the node, 0 until the node is visited.
+     */
+    private long[] keys = new long[INITIAL_CAPACITY];
+
+    /**
+     * Ordinal of the color that played the command leading to the node.
+     */
+    private byte[] mover = new byte[INITIAL_CAPACITY];
+
+    private int size;
+
+    private int root = -1;
+
+    private int played = -1;
+
+    private MonteCarloStatistics statistics;
+
+    /**
+     * Searches during the given time on each call.
+     *
+     * @param pylos the game the player plays, its next moves are the ones given to {@link #play(List)}
+     */
+    public MonteCarloPlayer(Pylos pylos, Duration timeBudget) {
+        this(pylos, Integer.MAX_VALUE, timeBudget.toNanos(), DEFAULT_MAX_NODES, new SplittableRandom());
+    }
+
+    /**
+     * Runs the given number of iterations on each call, with the random commands drawn from the given seed.
+     *
+     * @param pylos the game the player plays, its next moves are the ones given to {@link #play(List)}
+     */
+    public MonteCarloPlayer(Pylos pylos, int iterations, long seed) {
+        this(pylos, iterations, Long.MAX_VALUE, DEFAULT_MAX_NODES, new SplittableRandom(seed));
+    }
+
+    /**
+     * @param maxNodes the size the tree can grow to, leaves then stop being expanded
+     */
+    public MonteCarloPlayer(Pylos pylos, int maxIterations, long budgetNanos, int maxNodes, SplittableRandom random) {
+        this.pylos = pylos;
+        this.maxIterations = maxIterations;
+        this.budgetNanos = budgetNanos;
+        this.maxNodes = maxNodes;
+        this.random = random;
+        this.playout = new Playout(random);
+    }
+
+    /**
+     * Leaves solved by the tablebase count their winner rather than the one of a random game.
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    @Override
+    public Command play(List<Command> nextMoves) {
+        long start = System.nanoTime();
+        int reusedVisits = moveRoot();
+        int iterations = nextMoves.size() > 1 ? search(start) : 0;
+        expandRoot();
+
+        int best = 0;
+        for (int moveIndex = 1; moveIndex < nextMoves.size(); moveIndex++) {
+            if (visits(moveIndex) > visits(best)) {
+                best = moveIndex;
+            }
+        }
+        played(best);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        statistics = new MonteCarloStatistics(iterations, reusedVisits, iterations / seconds,
+                visits(best) == 0 ? 0 : wins(best) / visits(best));
+        return nextMoves.get(best);
+    }
+
+    /**
+     * @return what the last call to {@link #play(List)} searched, empty before the first one
+     */
+    public Optional<MonteCarloStatistics> statistics() {
+        return Optional.ofNullable(statistics);
+    }
+
+    /**
+     * Runs iterations from the root until the budget is spent.
+     *
+     * @param start the time the budget started at, from {@link System#nanoTime()}
+     * @return the number of iterations
+     */
+    int search(long start) {
+        Pylos game = new Pylos(pylos);
+        int iterations = 0;
+        // The clock is read every few iterations only, as an iteration is a whole game
+        while (iterations < maxIterations && ((iterations & 15) != 0 || System.nanoTime() - start < budgetNanos)) {
+            iterate(game);
+            iterations++;
+        }
+        return iterations;
+    }
+
+    /**
+     * Adds the children of the root if no search did, so that any of the next moves can be played.
+     */
+    void expandRoot() {
+        if (childCount[root] < 0) {
+            expand(root, new Pylos(pylos));
+        }
+    }
+
+    /**
+     * @return the visits of the child of the root reached by the next move of the given index
+     */
+    int visits(int moveIndex) {
+        return visits[firstChild[root] + moveIndex];
+    }
+
+    double wins(int moveIndex) {
+        return wins[firstChild[root] + moveIndex];
+    }
+
+    /**
+     * Records the move played, whose subtree is searched for the next position.
+     */
+    void played(int moveIndex) {
+        played = firstChild[root] + moveIndex;
+    }
+
+    /**
+     * Moves the root to the node of the current position if the tree has it, or starts a new tree.
+     *
+     * @return the visits of the new root
+     */
+    int moveRoot() {
+        long key = pylos.zobristKey();
+        int found = played < 0 ? -1 : find(played, key, REUSE_DEPTH);
+        if (found < 0) {
+            size = 0;
+            root = addNode(-1, pylos.currentColor());
+            keys[root] = key;
+        } else {
+            compact(found);
+        }
+        played = -1;
+        return visits[root];
+    }
+
+    private int find(int node, long key, int depth) {
+        if (keys[node] == key) {
+            return node;
+        }
+        if (depth == 0 || childCount[node] <= 0) {
+            return -1;
+        }
+        for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+            if (visits[child] > 0) {
+                int found = find(child, key, depth - 1);
+                if (found >= 0) {
+                    return found;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies the subtree of the given node to the start of the arena, in breadth first order so that children stay
+     * next to each other, and makes it the root.
+     */
+    private void compact(int newRoot) {
+        int[] order = new int[size];
+        int[] newParent = new int[parent.length];
+        int[] newFirstChild = new int[parent.length];
+        order[0] = newRoot;
+        newParent[0] = -1;
+        int count = 1;
+        for (int i = 0; i < count; i++) {
+            int node = order[i];
+            if (childCount[node] > 0) {
+                newFirstChild[i] = count;
+                for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+                    newParent[count] = i;
+                    order[count++] = child;
+                }
+            }
+        }
+
+        int[] newChildCount = new int[parent.length];
+        int[] newVisits = new int[parent.length];
+        double[] newWins = new double[parent.length];
+        long[] newKeys = new long[parent.length];
+        byte[] newMover = new byte[parent.length];
+        for (int i = 0; i < count; i++) {
+            int node = order[i];
+            newChildCount[i] = childCount[node];
+            newVisits[i] = visits[node];
+            newWins[i] = wins[node];
+            newKeys[i] = keys[node];
+            newMover[i] = mover[node];
+        }
+        parent = newParent;
+        firstChild = newFirstChild;
+        childCount = newChildCount;
+        visits = newVisits;
+        wins = newWins;
+        keys = newKeys;
+        mover = newMover;
+        size = count;
+        root = 0;
+    }
+
+    private void iterate(Pylos game) {
+        int node = root;
+        int depth = 0;
+        while (childCount[node] > 0) {
+            node = select(node);
+            apply(game, node);
+            depth++;
+        }
+        if (!game.gameOver() && expand(node, game)) {
+            node = firstChild[node] + random.nextInt(childCount[node]);
+            apply(game, node);
+            depth++;
+        }
+
+        // Games too long to finish have no winner and count as draws
+        Optional<Color> solved = tablebase == null ? Optional.empty() : tablebase.winner(game);
+        Color winner = solved.isPresent() ? solved.get() : playout.play(game);
+        for (; node >= 0; node = parent[node]) {
+            visits[node]++;
+            if (winner == null) {
+                wins[node] += 0.5;
+            } else if (mover[node] == winner.ordinal()) {
+                wins[node]++;
+            }
+        }
+        for (; depth > 0; depth--) {
+            game.undo();
+        }
+    }
+
+    private void apply(Pylos game, int node) {
+        int parentNode = parent[node];
+        game.apply(game.nextMoves().nextMoves.get(node - firstChild[parentNode]));
+        keys[node] = game.zobristKey();
+    }
+
+    /**
+     * @return the child with the best upper confidence bound, or the first child not visited yet
+     */
+    private int select(int node) {
+        double logVisits = Math.log(visits[node]);
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+            if (visits[child] == 0) {
+                return child;
+            }
+            double value = wins[child] / visits[child] + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Adds the children of a leaf, unless the tree is full.
+     *
+     * @return whether the leaf has children now
+     */
+    private boolean expand(int node, Pylos game) {
+        List<Command> nextMoves = game.nextMoves().nextMoves;
+        if (size + nextMoves.size() > maxNodes && node != root) {
+            return false;
+        }
+        Color color = game.currentColor();
+        firstChild[node] = size;
+        childCount[node] = nextMoves.size();
+        for (int i = 0; i < nextMoves.size(); i++) {
+            addNode(node, color);
+        }
+        return true;
+    }
+
+    private int addNode(int parentNode, Color color) {
+        if (size == parent.length) {
+            int capacity = 2 * size;
+            parent = Arrays.copyOf(parent, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            childCount = Arrays.copyOf(childCount, capacity);
+            visits = Arrays.copyOf(visits, capacity);
+            wins = Arrays.copyOf(wins, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            mover = Arrays.copyOf(mover, capacity);
+        }
+        int node = size++;
+        parent[node] = parentNode;
+        childCount[node] = -1;
+        visits[node] = 0;
+        wins[node] = 0;
+        keys[node] = 0;
+        mover[node] = (byte) color.ordinal();
+        return node;
+    }
+
+    int rootVisits() {
+        return visits[root];
+    }
+
+    int treeSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "MonteCarloPlayer";
+    }
+}
@@ -0,0 +1,12 @@
+package pylos.game.player;
+
+/**
+ * What the last search of a Monte Carlo player went through to pick its command.
+ *
+ * @param iterations        the iterations of the search, one playout each
+ * @param reusedVisits      the visits of the subtree kept from the previous search
+ * @param playoutsPerSecond the iterations divided by the time of the search
+ * @param expectedWins      the share of the playouts through the command picked that its player won, from 0 to 1
+ */
+public record MonteCarloStatistics(long iterations, long reusedVisits, double playoutsPerSecond, double expectedWins) {
+}
@@ -0,0 +1,108 @@
+package pylos.game.player;
+
+import pylos.game.Pylos;
+import pylos.game.command.Command;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Several {@link MonteCarloPlayer} trees searched at once, one per thread, with different random commands. The trees
+ * share nothing while they search, the move played is the one with the most visits summed over all of them. Each tree
+ * keeps the subtree of the position reached for the next call.
+ */
+public class RootParallelMonteCarloPlayer implements Player {
+
+    private final MonteCarloPlayer[] trees;
+
+    private final ExecutorService executor;
+
+    private MonteCarloStatistics statistics;
+
+    /**
+     * @param pylos   the game the player plays, its next moves are the ones given to {@link #play(List)}
+     * @param threads the number of trees, each searched by its own thread
+     */
+    public RootParallelMonteCarloPlayer(Pylos pylos, Duration timeBudget, int threads) {
+        SplittableRandom random = new SplittableRandom();
+        trees = new MonteCarloPlayer[threads];
+        for (int i = 0; i < threads; i++) {
+            trees[i] = new MonteCarloPlayer(pylos, Integer.MAX_VALUE, timeBudget.toNanos(),
+                    MonteCarloPlayer.DEFAULT_MAX_NODES / threads, random.split());
+        }
+        // Daemon threads, so that they don't keep the program running once the game is over
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "monte-carlo");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Command play(List<Command> nextMoves) {
+        long start = System.nanoTime();
+        long reusedVisits = 0;
+        for (MonteCarloPlayer tree : trees) {
+            reusedVisits += tree.moveRoot();
+        }
+        List<Future<Integer>> searches = new ArrayList<>();
+        for (MonteCarloPlayer tree : trees) {
+            searches.add(executor.submit(() -> {
+                int iterations = nextMoves.size() > 1 ? tree.search(start) : 0;
+                tree.expandRoot();
+                return iterations;
+            }));
+        }
+        long iterations = 0;
+        for (Future<Integer> search : searches) {
+            try {
+                iterations += search.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        int best = 0;
+        long bestVisits = -1;
+        for (int moveIndex = 0; moveIndex < nextMoves.size(); moveIndex++) {
+            long visits = 0;
+            for (MonteCarloPlayer tree : trees) {
+                visits += tree.visits(moveIndex);
+            }
+            if (visits > bestVisits) {
+                bestVisits = visits;
+                best = moveIndex;
+            }
+        }
+        double bestWins = 0;
+        for (MonteCarloPlayer tree : trees) {
+            bestWins += tree.wins(best);
+            tree.played(best);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        statistics = new MonteCarloStatistics(iterations, reusedVisits, iterations / seconds,
+                bestVisits == 0 ? 0 : bestWins / bestVisits);
+        return nextMoves.get(best);
+    }
+
+    /**
+     * @return what the last call to {@link #play(List)} searched over all the trees, empty before the first one
+     */
+    public Optional<MonteCarloStatistics> statistics() {
+        return Optional.ofNullable(statistics);
+    }
+
+    @Override
+    public String toString() {
+        return "RootParallelMonteCarloPlayer";
+    }
+}
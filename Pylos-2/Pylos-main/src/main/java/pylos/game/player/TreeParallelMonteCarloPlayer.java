@@ -0,0 +1,371 @@
+package pylos.game.player;
+
+import pylos.game.Color;
+import pylos.game.Playout;
+import pylos.game.Pylos;
+import pylos.game.command.Command;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static pylos.game.player.MonteCarloPlayer.EXPLORATION;
+import static pylos.game.player.MonteCarloPlayer.REUSE_DEPTH;
+
+/**
+ * The search of {@link MonteCarloPlayer} run by several threads descending the same tree. Visits and wins are atomic
+ * counters, and a node claimed by a CAS is expanded by a single thread. Each thread going through a node adds a
+ * virtual loss to it, visits without wins that are taken back when its result is counted, so that the other threads
+ * look at other branches meanwhile.
+ * <p>
+ * The arena is allocated once, as it can't grow while threads read it. The subtree of the position reached after
+ * the opponent's reply is kept for the next call.
+ */
+public class TreeParallelMonteCarloPlayer implements Player {
+
+    private static final int VIRTUAL_LOSS = 3;
+
+    private static final int UNEXPANDED = -1;
+
+    private static final int EXPANDING = -2;
+
+    private final Pylos pylos;
+
+    private final int threads;
+
+    private final int maxIterations;
+
+    private final long budgetNanos;
+
+    private final int capacity;
+
+    private final SplittableRandom random;
+
+    private ExecutorService executor;
+
+    /**
+     * Children of node i are the nodes firstChild[i] to firstChild[i] + childCount[i] - 1, in the order of the next
+     * moves of its position. childCount is UNEXPANDED, or EXPANDING while a thread adds the children; it is set last,
+     * so that a thread reading a count also sees the children.
+     */
+    private int[] parent;
+
+    private int[] firstChild;
+
+    private AtomicIntegerArray childCount;
+
+    private AtomicIntegerArray visits;
+
+    /**
+     * Games won by the color that played the command leading to the node, counted in halves so that draws count 1.
+     */
+    private AtomicLongArray halfWins;
+
+    private long[] keys;
+
+    private byte[] mover;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private int root = -1;
+
+    private int played = -1;
+
+    private MonteCarloStatistics statistics;
+
+    /**
+     * @param pylos   the game the player plays, its next moves are the ones given to {@link #play(List)}
+     * @param threads the number of threads searching the tree
+     */
+    public TreeParallelMonteCarloPlayer(Pylos pylos, Duration timeBudget, int threads) {
+        this(pylos, threads, Integer.MAX_VALUE, timeBudget.toNanos(), MonteCarloPlayer.DEFAULT_MAX_NODES, new SplittableRandom());
+    }
+
+    /**
+     * @param maxIterations the iterations of each call, shared by the threads
+     * @param capacity      the number of nodes of the arena, leaves stop being expanded once it is full
+     */
+    public TreeParallelMonteCarloPlayer(Pylos pylos, int threads, int maxIterations, long budgetNanos, int capacity,
+                                        SplittableRandom random) {
+        this.pylos = pylos;
+        this.threads = threads;
+        this.maxIterations = maxIterations;
+        this.budgetNanos = budgetNanos;
+        this.capacity = capacity;
+        this.random = random;
+        allocate();
+    }
+
+    private void allocate() {
+        parent = new int[capacity];
+        firstChild = new int[capacity];
+        childCount = new AtomicIntegerArray(capacity);
+        visits = new AtomicIntegerArray(capacity);
+        halfWins = new AtomicLongArray(capacity);
+        keys = new long[capacity];
+        mover = new byte[capacity];
+    }
+
+    @Override
+    public Command play(List<Command> nextMoves) {
+        long start = System.nanoTime();
+        int reusedVisits = moveRoot();
+        if (childCount.get(root) == UNEXPANDED) {
+            expand(root, new Pylos(pylos));
+        }
+
+        AtomicInteger iterations = new AtomicInteger();
+        if (nextMoves.size() > 1) {
+            long deadline = start + budgetNanos;
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Pylos game = new Pylos(pylos);
+                SplittableRandom workerRandom = random.split();
+                Playout playout = new Playout(workerRandom);
+                workers.add(executor().submit(() -> {
+                    while (iterations.getAndIncrement() < maxIterations && System.nanoTime() - deadline < 0) {
+                        iterate(game, workerRandom, playout);
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+
+        played = firstChild[root];
+        for (int child = played + 1; child < firstChild[root] + childCount.get(root); child++) {
+            if (visits.get(child) > visits.get(played)) {
+                played = child;
+            }
+        }
+        int done = Math.min(iterations.get(), maxIterations);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        statistics = new MonteCarloStatistics(done, reusedVisits, done / seconds,
+                visits.get(played) == 0 ? 0 : 0.5 * halfWins.get(played) / visits.get(played));
+        return nextMoves.get(played - firstChild[root]);
+    }
+
+    /**
+     * @return what the last call to {@link #play(List)} searched, empty before the first one
+     */
+    public Optional<MonteCarloStatistics> statistics() {
+        return Optional.ofNullable(statistics);
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            // Daemon threads, so that they don't keep the program running once the game is over
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "monte-carlo");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Moves the root to the node of the current position if the tree has it, or starts a new tree.
+     *
+     * @return the visits of the new root
+     */
+    private int moveRoot() {
+        long key = pylos.zobristKey();
+        int found = played < 0 ? -1 : find(played, key, REUSE_DEPTH);
+        if (found < 0) {
+            size.set(0);
+            root = addNodes(-1, 1, pylos.currentColor());
+            keys[root] = key;
+        } else {
+            compact(found);
+        }
+        played = -1;
+        return visits.get(root);
+    }
+
+    private int find(int node, long key, int depth) {
+        if (keys[node] == key) {
+            return node;
+        }
+        int count = childCount.get(node);
+        if (depth == 0 || count <= 0) {
+            return -1;
+        }
+        for (int child = firstChild[node]; child < firstChild[node] + count; child++) {
+            if (visits.get(child) > 0) {
+                int found = find(child, key, depth - 1);
+                if (found >= 0) {
+                    return found;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies the subtree of the given node to the start of a new arena, in breadth first order so that children stay
+     * next to each other, and makes it the root. Only called between searches.
+     */
+    private void compact(int newRoot) {
+        int[] order = new int[size.get()];
+        int[] oldParent = parent, oldFirstChild = firstChild;
+        AtomicIntegerArray oldChildCount = childCount, oldVisits = visits;
+        AtomicLongArray oldHalfWins = halfWins;
+        long[] oldKeys = keys;
+        byte[] oldMover = mover;
+        allocate();
+
+        order[0] = newRoot;
+        parent[0] = -1;
+        int count = 1;
+        for (int i = 0; i < count; i++) {
+            int node = order[i];
+            int children = oldChildCount.get(node);
+            // A node left EXPANDING by a full arena is unexpanded
+            childCount.set(i, children == EXPANDING ? UNEXPANDED : children);
+            visits.set(i, oldVisits.get(node));
+            halfWins.set(i, oldHalfWins.get(node));
+            keys[i] = oldKeys[node];
+            mover[i] = oldMover[node];
+            if (children > 0) {
+                firstChild[i] = count;
+                for (int child = oldFirstChild[node]; child < oldFirstChild[node] + children; child++) {
+                    parent[count] = i;
+                    order[count++] = child;
+                }
+            }
+        }
+        size.set(count);
+        root = 0;
+    }
+
+    private void iterate(Pylos game, SplittableRandom random, Playout playout) {
+        int node = root;
+        int depth = 0;
+        int count;
+        while ((count = childCount.get(node)) > 0) {
+            node = select(node, count);
+            visits.addAndGet(node, VIRTUAL_LOSS);
+            apply(game, node);
+            depth++;
+        }
+        // Only the thread that claims a leaf expands it, the others play from the leaf meanwhile
+        if (!game.gameOver() && count == UNEXPANDED && childCount.compareAndSet(node, UNEXPANDED, EXPANDING)
+                && expand(node, game)) {
+            node = firstChild[node] + random.nextInt(childCount.get(node));
+            visits.addAndGet(node, VIRTUAL_LOSS);
+            apply(game, node);
+            depth++;
+        }
+
+        Color winner = playout.play(game);
+        for (; node >= 0; node = parent[node]) {
+            visits.addAndGet(node, node == root ? 1 : 1 - VIRTUAL_LOSS);
+            if (winner == null) {
+                halfWins.addAndGet(node, 1);
+            } else if (mover[node] == winner.ordinal()) {
+                halfWins.addAndGet(node, 2);
+            }
+        }
+        for (; depth > 0; depth--) {
+            game.undo();
+        }
+    }
+
+    private void apply(Pylos game, int node) {
+        game.apply(game.nextMoves().nextMoves.get(node - firstChild[parent[node]]));
+        keys[node] = game.zobristKey();
+    }
+
+    /**
+     * @return the child with the best upper confidence bound, or the first child not visited yet
+     */
+    private int select(int node, int count) {
+        double logVisits = Math.log(Math.max(1, visits.get(node)));
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = firstChild[node]; child < firstChild[node] + count; child++) {
+            int childVisits = visits.get(child);
+            if (childVisits == 0) {
+                return child;
+            }
+            double value = halfWins.get(child) / (2.0 * childVisits) + EXPLORATION * Math.sqrt(logVisits / childVisits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Adds the children of a leaf claimed by the calling thread, unless the arena is full.
+     *
+     * @return whether the leaf has children now
+     */
+    private boolean expand(int node, Pylos game) {
+        List<Command> nextMoves = game.nextMoves().nextMoves;
+        int first = addNodes(node, nextMoves.size(), game.currentColor());
+        if (first < 0) {
+            childCount.set(node, UNEXPANDED);
+            return false;
+        }
+        firstChild[node] = first;
+        childCount.set(node, nextMoves.size());
+        return true;
+    }
+
+    /**
+     * @return the first of the nodes added, or -1 if the arena has no room for them
+     */
+    private int addNodes(int parentNode, int count, Color color) {
+        int first;
+        do {
+            first = size.get();
+            if (first + count > capacity) {
+                return -1;
+            }
+        } while (!size.compareAndSet(first, first + count));
+        for (int node = first; node < first + count; node++) {
+            parent[node] = parentNode;
+            childCount.set(node, UNEXPANDED);
+            visits.set(node, 0);
+            halfWins.set(node, 0);
+            keys[node] = 0;
+            mover[node] = (byte) color.ordinal();
+        }
+        return first;
+    }
+
+    int rootVisits() {
+        return visits.get(root);
+    }
+
+    /**
+     * @return the visits of the child of the root reached by the next move of the given index
+     */
+    int visits(int moveIndex) {
+        return visits.get(firstChild[root] + moveIndex);
+    }
+
+    @Override
+    public String toString() {
+        return "TreeParallelMonteCarloPlayer";
+    }
+}
@@ -4,11 +4,13 @@ import pylos.game.BallPosition;
 import pylos.game.Color;
 import pylos.game.Pylos;
 import pylos.game.PylosRound;
+import pylos.game.Tablebase;
 import pylos.game.command.Command;
 import pylos.game.player.ConsolePlayer;
+import pylos.game.player.MonteCarloPlayer;
 import pylos.game.player.Player;
-import pylos.game.player.RandomPlayer;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -21,12 +23,21 @@ public class Game {
         final Pylos pylos = new Pylos();
         final Map<Color, Player> players = new HashMap<>();
         players.put(Color.WHITE, new ConsolePlayer());
-        players.put(Color.BLACK, new RandomPlayer());
+        MonteCarloPlayer monteCarloPlayer = new MonteCarloPlayer(pylos, Duration.ofSeconds(2));
+        Tablebase.openDefault().ifPresent(monteCarloPlayer::setTablebase);
+        players.put(Color.BLACK, monteCarloPlayer);
         while (!pylos.gameOver()) {
             printBoard(pylos);
 
             PylosRound currentRound = pylos.nextMoves();
-            Command nextMove = players.get(currentRound.currentColor).play(currentRound.nextMoves);
+            Player player = players.get(currentRound.currentColor);
+            Command nextMove = player.play(currentRound.nextMoves);
+            if (player == monteCarloPlayer) {
+                monteCarloPlayer.statistics().ifPresent(statistics -> System.out.printf(
+                        "Monte Carlo search picked %s after %d iterations (%d reused, %.0f playouts/s), %.1f%% wins expected%n",
+                        nextMove, statistics.iterations(), statistics.reusedVisits(), statistics.playoutsPerSecond(),
+                        100 * statistics.expectedWins()));
+            }
 
             try {
                 pylos.apply(nextMove);
@@ -0,0 +1,47 @@
+package pylos.game;
+
+import org.junit.jupiter.api.Test;
+import pylos.game.command.Command;
+import pylos.game.command.Put;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CanonicalKeyTest {
+
+    @Test
+    public void should_give_three_canonical_keys_to_the_first_moves() {
+        Set<Long> keys = new HashSet<>();
+        Set<Long> zobristKeys = new HashSet<>();
+        for (Command firstMove : new Pylos().nextMoves().nextMoves) {
+            Pylos pylos = new Pylos();
+            pylos.apply(firstMove);
+            keys.add(pylos.canonicalKey());
+            zobristKeys.add(pylos.zobristKey());
+        }
+
+        assertThat(zobristKeys).hasSize(16);
+        assertThat(keys).hasSize(3);
+    }
+
+    @Test
+    public void should_give_same_canonical_key_to_symmetric_positions() {
+        Pylos pylos = new Pylos();
+        pylos.apply(new Put("a1"));
+        pylos.apply(new Put("b2"));
+        pylos.apply(new Put("a2"));
+        Pylos mirror = new Pylos();
+        mirror.apply(new Put("d1"));
+        mirror.apply(new Put("c2"));
+        mirror.apply(new Put("d2"));
+        Pylos other = new Pylos();
+        other.apply(new Put("a1"));
+        other.apply(new Put("b2"));
+        other.apply(new Put("a3"));
+
+        assertThat(mirror.canonicalKey()).isEqualTo(pylos.canonicalKey()).isNotEqualTo(other.canonicalKey());
+        assertThat(mirror.zobristKey()).isNotEqualTo(pylos.zobristKey());
+    }
+}
@@ -6,6 +6,7 @@ import pylos.game.command.Command;
 import pylos.game.command.Put;
 
 import java.util.List;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -51,4 +52,17 @@ public class NextMovesTest {
         assertThat(nextMoves).contains(new Put("e1"));
     }
 
+    @Test
+    public void should_maintain_next_moves_as_a_full_computation_would() {
+        Random random = new Random(42);
+        for (int game = 0; game < 50; game++) {
+            Pylos pylos = new Pylos();
+            pylos.setVerifyNextMoves(true);
+            while (!pylos.gameOver()) {
+                List<Command> nextMoves = pylos.nextMoves().nextMoves;
+                pylos.apply(nextMoves.get(random.nextInt(nextMoves.size())));
+            }
+        }
+    }
+
 }
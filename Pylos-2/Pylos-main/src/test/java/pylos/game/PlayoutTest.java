@@ -0,0 +1,74 @@
+package pylos.game;
+
+import org.junit.jupiter.api.Test;
+import pylos.game.command.Command;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PlayoutTest {
+
+    @Test
+    public void should_play_the_same_games_as_random_next_moves() {
+        for (long seed = 0; seed < 200; seed++) {
+            Pylos pylos = new Pylos();
+            Playout playout = new Playout(new SplittableRandom(seed));
+
+            Color winner = playout.play(pylos);
+
+            SplittableRandom random = new SplittableRandom(seed);
+            int commands = 0;
+            while (!pylos.gameOver() && commands < Playout.MAX_COMMANDS) {
+                List<Command> nextMoves = pylos.nextMoves().nextMoves;
+                pylos.apply(nextMoves.get(random.nextInt(nextMoves.size())));
+                commands++;
+            }
+            assertThat(playout.commands()).isEqualTo(commands);
+            assertThat(winner).isEqualTo(pylos.winner().orElse(null));
+        }
+    }
+
+    @Test
+    public void should_play_from_special_states() {
+        SplittableRandom random = new SplittableRandom(42);
+        int specialStates = 0;
+        for (long seed = 0; seed < 100; seed++) {
+            Pylos pylos = new Pylos();
+            pylos.setVerifyNextMoves(true);
+            // Random positions of the middle game, where patterns are completed
+            int opening = 20 + random.nextInt(20);
+            for (int i = 0; i < opening && !pylos.gameOver(); i++) {
+                List<Command> nextMoves = pylos.nextMoves().nextMoves;
+                pylos.apply(nextMoves.get(random.nextInt(nextMoves.size())));
+            }
+            if (pylos.currentState() != State.CLASSIC) {
+                specialStates++;
+            }
+            Color winner = new Playout(new SplittableRandom(seed)).play(pylos);
+
+            SplittableRandom reference = new SplittableRandom(seed);
+            for (int commands = 0; !pylos.gameOver() && commands < Playout.MAX_COMMANDS; commands++) {
+                List<Command> nextMoves = pylos.nextMoves().nextMoves;
+                pylos.apply(nextMoves.get(reference.nextInt(nextMoves.size())));
+            }
+            assertThat(winner).isEqualTo(pylos.winner().orElse(null));
+        }
+        assertThat(specialStates).isPositive();
+    }
+
+    @Test
+    public void should_leave_the_game_untouched() {
+        Pylos pylos = new Pylos();
+        pylos.apply(pylos.nextMoves().nextMoves.get(0));
+        long key = pylos.zobristKey();
+        List<Command> nextMoves = pylos.nextMoves().nextMoves;
+
+        double winRate = new Playout(new SplittableRandom(1)).winRate(pylos, Color.WHITE, 100);
+
+        assertThat(winRate).isBetween(0.0, 1.0);
+        assertThat(pylos.zobristKey()).isEqualTo(key);
+        assertThat(pylos.nextMoves().nextMoves).isEqualTo(nextMoves);
+    }
+}
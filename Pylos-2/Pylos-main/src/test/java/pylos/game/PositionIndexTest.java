@@ -0,0 +1,140 @@
+package pylos.game;
+
+import org.junit.jupiter.api.Test;
+import pylos.game.internal.Bitboard;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PositionIndexTest {
+
+    private static final PositionIndex ALL = new PositionIndex(0, Bitboard.SIZE);
+
+    @Test
+    public void should_count_the_positions_of_each_shape() {
+        PositionIndex index = new PositionIndex(1, 1);
+        int fourteen = Bitboard.bit(14) - 1;
+        int fifteen = Bitboard.bit(15) - 1;
+
+        // Only the top is empty, the color to play has 14 balls and the other one 15
+        assertThat(index.shapeCount()).isEqualTo(1);
+        assertThat(index.size()).isEqualTo(2 * 77558760L);
+        assertThat(index.rank(Bitboard.FULL & ~Bitboard.bit(29) & ~fourteen, fourteen, Color.BLACK)).isZero();
+        assertThat(index.rank(Bitboard.FULL & ~Bitboard.bit(29) & ~fifteen, fifteen, Color.WHITE))
+                .isEqualTo(77558760L);
+    }
+
+    @Test
+    public void should_number_all_positions() {
+        assertThat(ALL.shapeCount()).isEqualTo(141120);
+        assertThat(ALL.rank(0, 0, Color.BLACK)).isZero();
+        assertThat(ALL.unrank(ALL.size() - 1)).isNotNegative();
+    }
+
+    @Test
+    public void should_unrank_the_rank_of_a_position() {
+        SplittableRandom random = new SplittableRandom(24);
+        for (int i = 0; i < 100_000; i++) {
+            long rank = random.nextLong(ALL.size());
+
+            long position = ALL.unrank(rank);
+
+            assertThat(PositionIndex.whiteBalls(position) & PositionIndex.blackBalls(position)).isZero();
+            assertThat(ALL.rank(PositionIndex.whiteBalls(position), PositionIndex.blackBalls(position),
+                    PositionIndex.color(position))).isEqualTo(rank);
+        }
+    }
+
+    @Test
+    public void should_not_rank_positions_outside_of_the_index() {
+        PositionIndex index = new PositionIndex(1, 2);
+        int fifteen = Bitboard.bit(15) - 1;
+        int floating = Bitboard.bit(29) | Bitboard.bit(0);
+
+        assertThat(index.rank(0, Bitboard.bit(0), Color.WHITE)).isEqualTo(-1);
+        assertThat(index.rank(Bitboard.FULL & ~Bitboard.bit(29) & ~fifteen, fifteen, Color.BLACK)).isEqualTo(-1);
+        assertThat(ALL.rank(0, floating, Color.WHITE)).isEqualTo(-1);
+    }
+
+    @Test
+    public void should_rank_the_positions_of_a_game() {
+        Pylos pylos = new Pylos();
+        pylos.apply(pylos.nextMoves().nextMoves.get(0));
+
+        long position = ALL.unrank(ALL.rank(pylos));
+
+        assertThat(PositionIndex.whiteBalls(position)).isEqualTo(pylos.balls(Color.WHITE));
+        assertThat(PositionIndex.blackBalls(position)).isEqualTo(pylos.balls(Color.BLACK));
+        assertThat(PositionIndex.color(position)).isEqualTo(pylos.currentColor());
+    }
+
+    @Test
+    public void should_follow_the_rank_of_a_position_with_a_cursor() {
+        SplittableRandom random = new SplittableRandom(24);
+        PositionIndex.Cursor cursor = ALL.cursor();
+        for (int i = 0; i < 10_000; i++) {
+            long position = ALL.unrank(random.nextLong(ALL.size()));
+            int white = PositionIndex.whiteBalls(position);
+            int black = PositionIndex.blackBalls(position);
+            cursor.set(white, black, PositionIndex.color(position));
+            for (int change = 0; change < 4; change++) {
+                int occupied = white | black;
+                int free = occupied & ~Bitboard.covered(occupied);
+                if (free != 0 && random.nextBoolean()) {
+                    int cell = randomPosition(random, free);
+                    cursor.take(cell);
+                    white &= ~Bitboard.bit(cell);
+                    black &= ~Bitboard.bit(cell);
+                } else if (occupied != Bitboard.FULL) {
+                    int cell = randomPosition(random, Bitboard.freeToPut(occupied));
+                    Color color = random.nextBoolean() ? Color.WHITE : Color.BLACK;
+                    cursor.put(cell, color);
+                    if (color == Color.WHITE) {
+                        white |= Bitboard.bit(cell);
+                    } else {
+                        black |= Bitboard.bit(cell);
+                    }
+                }
+                Color color = random.nextBoolean() ? Color.WHITE : Color.BLACK;
+
+                assertThat(cursor.color(color).rank()).isEqualTo(ALL.rank(white, black, color));
+            }
+        }
+    }
+
+    @Test
+    public void should_number_the_positions_that_keep_fixed_balls() {
+        PositionIndex index = new PositionIndex(1, 6, 0x5555, 0xAAAA);
+        SplittableRandom random = new SplittableRandom(23);
+        PositionIndex.Cursor cursor = index.cursor();
+        for (long rank = 0; rank < index.size(); rank++) {
+            long position = index.unrank(rank);
+            int white = PositionIndex.whiteBalls(position);
+            int black = PositionIndex.blackBalls(position);
+
+            assertThat(white & 0xFFFF).isEqualTo(0x5555);
+            assertThat(black & 0xFFFF).isEqualTo(0xAAAA);
+            assertThat(index.rank(white, black, PositionIndex.color(position))).isEqualTo(rank);
+
+            int occupied = white | black;
+            int cell = randomPosition(random, occupied & ~Bitboard.covered(occupied));
+            cursor.set(white, black, PositionIndex.color(position)).take(cell);
+            assertThat(cursor.rank()).isEqualTo(index.rank(white & ~Bitboard.bit(cell), black & ~Bitboard.bit(cell),
+                    PositionIndex.color(position)));
+        }
+        // The same balls with the colors of two fixed ones swapped
+        long position = index.unrank(0);
+        int white = PositionIndex.whiteBalls(position) ^ 0b11;
+        int black = PositionIndex.blackBalls(position) ^ 0b11;
+        assertThat(index.rank(white, black, PositionIndex.color(position))).isEqualTo(-1);
+        assertThat(ALL.rank(white, black, PositionIndex.color(position))).isNotNegative();
+    }
+
+    private static int randomPosition(SplittableRandom random, int positions) {
+        for (int skip = random.nextInt(Integer.bitCount(positions)); skip > 0; skip--) {
+            positions &= positions - 1;
+        }
+        return Integer.numberOfTrailingZeros(positions);
+    }
+}
@@ -0,0 +1,164 @@
+package pylos.game;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pylos.game.command.Command;
+import pylos.game.command.Move;
+import pylos.game.command.Put;
+import pylos.game.command.Remove;
+import pylos.game.internal.Bitboard;
+import pylos.game.internal.Symmetry;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ProofNumberSolverTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void should_prove_the_win_of_the_last_ball() throws Exception {
+        Pylos pylos = randomGame(new SplittableRandom(1), 1);
+
+        try (ProofNumberSolver solver = new ProofNumberSolver(directory.resolve("proofs"), 1000)) {
+            assertThat(solver.solve(pylos)).isTrue();
+            assertThat(solver.proofNumber()).isZero();
+            assertThat(solver.disproofNumber()).isEqualTo(ProofNumberSolver.INFINITY);
+        }
+    }
+
+    @Test
+    public void should_agree_with_short_searches() throws Exception {
+        SplittableRandom random = new SplittableRandom(25);
+        int compared = 0;
+        try (ProofNumberSolver solver = new ProofNumberSolver(directory.resolve("proofs"), 1000)) {
+            for (int i = 0; i < 100; i++) {
+                Pylos pylos = randomGame(random, 2 + random.nextInt(2));
+                Optional<Boolean> won = wins(pylos, pylos.currentColor(), 8);
+
+                boolean solved = solver.solve(pylos);
+
+                if (won.isPresent()) {
+                    assertThat(solved).isEqualTo(won.get());
+                    compared++;
+                }
+            }
+        }
+        assertThat(compared).isGreaterThan(50);
+    }
+
+    @Test
+    public void should_resume_from_its_file() throws Exception {
+        Path file = directory.resolve("proofs");
+        Pylos pylos = randomGame(new SplittableRandom(3), 6);
+        boolean won;
+        long expanded;
+        try (ProofNumberSolver solver = new ProofNumberSolver(file, 100)) {
+            won = solver.solve(pylos);
+            expanded = solver.expandedNodes();
+        }
+
+        try (ProofNumberSolver solver = new ProofNumberSolver(file, 100)) {
+            assertThat(solver.solve(pylos)).isEqualTo(won);
+            assertThat(solver.expandedNodes()).isEqualTo(expanded + 1);
+        }
+    }
+
+    @Test
+    public void should_solve_symmetric_positions_once() throws Exception {
+        Path file = directory.resolve("proofs");
+        SplittableRandom random = new SplittableRandom(10);
+        Pylos pylos = new Pylos();
+        Pylos mirror = new Pylos();
+        while (Bitboard.SIZE - Integer.bitCount(pylos.occupied()) > 6 || pylos.currentState() != State.CLASSIC) {
+            List<Command> nextMoves = pylos.nextMoves().nextMoves;
+            Command command = nextMoves.get(random.nextInt(nextMoves.size()));
+            pylos.apply(command);
+            mirror.apply(image(command, 1));
+        }
+        boolean won;
+        long expanded;
+        try (ProofNumberSolver solver = new ProofNumberSolver(file, 100)) {
+            won = solver.solve(pylos);
+            expanded = solver.expandedNodes();
+        }
+
+        try (ProofNumberSolver solver = new ProofNumberSolver(file, 100)) {
+            assertThat(mirror.balls(Color.WHITE)).isNotEqualTo(pylos.balls(Color.WHITE));
+            assertThat(solver.solve(mirror)).isEqualTo(won);
+            assertThat(solver.expandedNodes()).isEqualTo(expanded + 1);
+        }
+    }
+
+    @Test
+    public void should_only_start_from_puts_and_moves() throws Exception {
+        try (ProofNumberSolver solver = new ProofNumberSolver(directory.resolve("proofs"), 1000)) {
+            Pylos pylos = randomGame(new SplittableRandom(4), 0);
+
+            assertThatThrownBy(() -> solver.solve(pylos)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    /**
+     * @return a random game with the given number of empty positions, waiting for a put or a move
+     */
+    private static Pylos randomGame(SplittableRandom random, int empty) {
+        while (true) {
+            Pylos pylos = new Pylos();
+            while (!pylos.gameOver() && (Bitboard.SIZE - Integer.bitCount(pylos.occupied()) > empty
+                    || pylos.currentState() != State.CLASSIC)) {
+                List<Command> nextMoves = pylos.nextMoves().nextMoves;
+                pylos.apply(nextMoves.get(random.nextInt(nextMoves.size())));
+            }
+            if (Bitboard.SIZE - Integer.bitCount(pylos.occupied()) == empty) {
+                return pylos;
+            }
+        }
+    }
+
+    private static Command image(Command command, int symmetry) {
+        if (command instanceof Put put) {
+            return new Put(image(put.coordinates(), symmetry));
+        } else if (command instanceof Remove remove) {
+            return new Remove(image(remove.coordinates(), symmetry));
+        } else if (command instanceof Move move) {
+            return new Move(image(move.coordinatesFrom(), symmetry), image(move.coordinatesTo(), symmetry));
+        }
+        return command;
+    }
+
+    private static String image(String coordinates, int symmetry) {
+        return Bitboard.coordinates(Symmetry.transform(symmetry, Bitboard.index(coordinates)));
+    }
+
+    /**
+     * @return whether the color can force a win within the given number of commands, empty when it can't tell
+     */
+    private static Optional<Boolean> wins(Pylos pylos, Color color, int commands) {
+        if (pylos.gameOver()) {
+            return Optional.of(pylos.winner().orElseThrow() == color);
+        }
+        if (commands == 0) {
+            return Optional.empty();
+        }
+        boolean attacking = pylos.currentColor() == color;
+        boolean unknown = false;
+        for (Command command : pylos.nextMoves().nextMoves) {
+            pylos.apply(command);
+            Optional<Boolean> won = wins(pylos, color, commands - 1);
+            pylos.undo();
+            if (won.isEmpty()) {
+                unknown = true;
+            } else if (won.get() == attacking) {
+                return won;
+            }
+        }
+        return unknown ? Optional.empty() : Optional.of(!attacking);
+    }
+}
@@ -0,0 +1,68 @@
+package pylos.game;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProofNumberTableTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void should_spill_the_nodes_beyond_the_heap_budget_to_the_file() throws Exception {
+        try (ProofNumberTable table = new ProofNumberTable(directory.resolve("proofs"), 1000)) {
+            for (long key = 0; key < 200_000; key++) {
+                table.put(key, (int) key, (int) (key % 7));
+            }
+
+            assertThat(table.heapSize()).isLessThan(1000);
+            assertThat(table.mappedSize()).isGreaterThan(199_000);
+            for (long key = 0; key < 200_000; key++) {
+                assertThat(table.get(key)).isEqualTo(ProofNumberTable.pack((int) key, (int) (key % 7)));
+            }
+            assertThat(table.get(200_000)).isEqualTo(ProofNumberTable.ABSENT);
+        }
+    }
+
+    @Test
+    public void should_find_the_nodes_of_an_earlier_run() throws Exception {
+        Path file = directory.resolve("proofs");
+        try (ProofNumberTable table = new ProofNumberTable(file, 1000)) {
+            table.put(42, 0, ProofNumberSolver.INFINITY);
+            table.put(43, 3, 5);
+            table.checkpoint(10, 20);
+        }
+
+        try (ProofNumberTable table = new ProofNumberTable(file, 1000)) {
+            assertThat(table.get(42)).isEqualTo(ProofNumberTable.pack(0, ProofNumberSolver.INFINITY));
+            assertThat(table.get(43)).isEqualTo(ProofNumberTable.pack(3, 5));
+            assertThat(table.expanded()).isEqualTo(10);
+            assertThat(table.nanos()).isEqualTo(20);
+        }
+    }
+
+    @Test
+    public void should_count_the_entries_of_a_spill_that_did_not_complete() throws Exception {
+        Path file = directory.resolve("proofs");
+        try (ProofNumberTable table = new ProofNumberTable(file, 1000)) {
+            for (long key = 0; key < 5000; key++) {
+                table.put(key, 1, 1);
+            }
+        }
+        // The header counts the entries at the end of a spill only
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES), 16);
+        }
+
+        try (ProofNumberTable table = new ProofNumberTable(file, 1000)) {
+            assertThat(table.mappedSize()).isEqualTo(5000);
+        }
+    }
+}
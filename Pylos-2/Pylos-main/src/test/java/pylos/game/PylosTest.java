@@ -228,6 +228,19 @@ public class PylosTest {
         assertThat(currentColor()).hasValue(BLACK);
     }
 
+    @Test
+    public void should_copy_a_game_independently() {
+        whiteHasSquare();
+
+        Pylos copy = new Pylos(pylos);
+        copy.apply(new Remove("a4"));
+
+        assertThat(pylos.nextMoves().nextMoves).contains(new Remove("a4"));
+        assertThat(copy.nextMoves().nextMoves).doesNotContain(new Remove("a4"));
+        assertThat(pylos.getBallPosition("a4")).map(BallPosition::isNotEmpty).hasValue(true);
+        assertThat(copy.getBallPosition("a4")).map(BallPosition::isEmpty).hasValue(true);
+    }
+
     private void whiteHasSquare() {
         // WHITE
         pylos.apply(new Put("a4"));
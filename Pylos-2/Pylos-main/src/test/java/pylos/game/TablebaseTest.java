@@ -0,0 +1,137 @@
+package pylos.game;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pylos.game.command.Command;
+import pylos.game.internal.Bitboard;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TablebaseTest {
+
+    private static final int LOWEST_LEVEL = Bitboard.FULL & ~Bitboard.UPPER_LEVELS;
+
+    private static final int MAX_EMPTY = 5;
+
+    private static final long GAP_SEED = 25;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void should_agree_with_short_searches() throws Exception {
+        SplittableRandom random = new SplittableRandom(23);
+        int compared = 0;
+        int removals = 0;
+        for (int i = 0; i < 5; i++) {
+            Pylos pylos = randomGame(random, MAX_EMPTY);
+            // Only the positions that keep the balls of the lowest level are solved, to keep the tablebase small
+            PositionIndex index = new PositionIndex(1, MAX_EMPTY, pylos.balls(Color.WHITE) & LOWEST_LEVEL,
+                    pylos.balls(Color.BLACK) & LOWEST_LEVEL);
+            Tablebase tablebase = Tablebase.generate(index, directory.resolve("tablebase" + i));
+
+            while (!pylos.gameOver()) {
+                if (Bitboard.SIZE - Integer.bitCount(pylos.occupied()) <= 4) {
+                    Optional<Color> winner = tablebase.winner(pylos);
+                    Optional<Boolean> won = wins(pylos, pylos.currentColor(), 7);
+                    if (winner.isPresent() && won.isPresent()) {
+                        assertThat(winner.get() == pylos.currentColor()).isEqualTo(won.get());
+                        compared++;
+                        if (pylos.currentState() != State.CLASSIC) {
+                            removals++;
+                        }
+                    }
+                }
+                List<Command> nextMoves = pylos.nextMoves().nextMoves;
+                pylos.apply(nextMoves.get(random.nextInt(nextMoves.size())));
+            }
+        }
+        assertThat(compared).isGreaterThan(20);
+        assertThat(removals).isPositive();
+    }
+
+    @Test
+    public void should_solve_the_positions_after_a_distance_without_any() throws Exception {
+        Pylos pylos = randomGame(new SplittableRandom(GAP_SEED), MAX_EMPTY);
+        PositionIndex index = new PositionIndex(1, MAX_EMPTY, pylos.balls(Color.WHITE) & LOWEST_LEVEL,
+                pylos.balls(Color.BLACK) & LOWEST_LEVEL);
+        Tablebase tablebase = Tablebase.generate(index, directory.resolve("tablebase"));
+
+        boolean[] solved = new boolean[Tablebase.MAX_DISTANCE + 1];
+        for (long rank = 0; rank < index.size(); rank++) {
+            long position = index.unrank(rank);
+            int value = tablebase.value(PositionIndex.whiteBalls(position), PositionIndex.blackBalls(position),
+                    PositionIndex.color(position));
+            solved[Math.abs(value)] = true;
+        }
+
+        // A turn spans up to three commands, so distances without any position don't end the analysis
+        int gap = 1;
+        while (solved[gap]) {
+            gap++;
+        }
+        assertThat(Arrays.copyOfRange(solved, gap, solved.length)).contains(true);
+    }
+
+    @Test
+    public void should_open_the_file_it_wrote() throws Exception {
+        Pylos pylos = randomGame(new SplittableRandom(4), 3);
+        PositionIndex index = new PositionIndex(1, 3, pylos.balls(Color.WHITE) & LOWEST_LEVEL,
+                pylos.balls(Color.BLACK) & LOWEST_LEVEL);
+        Path file = directory.resolve("tablebase");
+        Tablebase.generate(index, file);
+
+        Tablebase tablebase = Tablebase.open(file);
+
+        assertThat(tablebase.positions()).isEqualTo(index.size());
+        assertThat(tablebase.winner(pylos)).isPresent();
+    }
+
+    /**
+     * @return a random game with the given number of empty positions, waiting for a put or a move
+     */
+    private static Pylos randomGame(SplittableRandom random, int empty) {
+        while (true) {
+            Pylos pylos = new Pylos();
+            while (!pylos.gameOver() && (Bitboard.SIZE - Integer.bitCount(pylos.occupied()) > empty
+                    || pylos.currentState() != State.CLASSIC)) {
+                List<Command> nextMoves = pylos.nextMoves().nextMoves;
+                pylos.apply(nextMoves.get(random.nextInt(nextMoves.size())));
+            }
+            if (Bitboard.SIZE - Integer.bitCount(pylos.occupied()) == empty) {
+                return pylos;
+            }
+        }
+    }
+
+    /**
+     * @return whether the color can force a win within the given number of commands, empty when it can't tell
+     */
+    private static Optional<Boolean> wins(Pylos pylos, Color color, int commands) {
+        if (pylos.gameOver()) {
+            return Optional.of(pylos.winner().orElseThrow() == color);
+        }
+        if (commands == 0) {
+            return Optional.empty();
+        }
+        boolean attacking = pylos.currentColor() == color;
+        boolean unknown = false;
+        for (Command command : pylos.nextMoves().nextMoves) {
+            pylos.apply(command);
+            Optional<Boolean> won = wins(pylos, color, commands - 1);
+            pylos.undo();
+            if (won.isEmpty()) {
+                unknown = true;
+            } else if (won.get() == attacking) {
+                return won;
+            }
+        }
+        return unknown ? Optional.empty() : Optional.of(!attacking);
+    }
+}
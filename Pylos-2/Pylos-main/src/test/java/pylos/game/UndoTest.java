@@ -0,0 +1,86 @@
+package pylos.game;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pylos.game.command.Command;
+import pylos.game.command.Put;
+import pylos.game.command.Remove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static pylos.game.Color.WHITE;
+
+public class UndoTest {
+
+    private Pylos pylos;
+
+    @BeforeEach
+    public void createGame() {
+        pylos = new Pylos();
+    }
+
+    @Test
+    public void should_not_undo_without_command() {
+        Throwable throwable = catchThrowable(() -> pylos.undo());
+
+        assertThat(pylos.canUndo()).isFalse();
+        assertThat(throwable).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void should_undo_a_put() {
+        List<Command> nextMoves = pylos.nextMoves().nextMoves;
+        pylos.apply(new Put("a1"));
+
+        pylos.undo();
+
+        assertThat(pylos.getBallPosition("a1")).map(BallPosition::isEmpty).hasValue(true);
+        assertThat(pylos.nextMoves().currentColor).isEqualTo(WHITE);
+        assertThat(pylos.nextMoves().nextMoves).isEqualTo(nextMoves);
+    }
+
+    @Test
+    public void should_undo_a_remove_back_to_special_state() {
+        pylos.apply(new Put("a4"));
+        pylos.apply(new Put("c2"));
+        pylos.apply(new Put("b4"));
+        pylos.apply(new Put("d1"));
+        pylos.apply(new Put("b3"));
+        pylos.apply(new Put("d2"));
+        pylos.apply(new Put("a3"));
+        List<Command> nextMoves = pylos.nextMoves().nextMoves;
+        pylos.apply(new Remove("a4"));
+        pylos.apply(Command.pass);
+
+        pylos.undo();
+        pylos.undo();
+
+        assertThat(pylos.nextMoves().currentColor).isEqualTo(WHITE);
+        assertThat(pylos.nextMoves().nextMoves).isEqualTo(nextMoves);
+    }
+
+    @Test
+    public void should_undo_a_whole_game() {
+        Random random = new Random(7);
+        List<List<Command>> nextMovesPerTurn = new ArrayList<>();
+        List<List<Optional<Color>>> colorsPerTurn = new ArrayList<>();
+        while (!pylos.gameOver()) {
+            List<Command> nextMoves = pylos.nextMoves().nextMoves;
+            nextMovesPerTurn.add(nextMoves);
+            colorsPerTurn.add(pylos.allPositions().map(BallPosition::getColor).toList());
+            pylos.apply(nextMoves.get(random.nextInt(nextMoves.size())));
+        }
+
+        for (int turn = nextMovesPerTurn.size() - 1; turn >= 0; turn--) {
+            pylos.undo();
+            assertThat(pylos.nextMoves().nextMoves).isEqualTo(nextMovesPerTurn.get(turn));
+            assertThat(pylos.allPositions().map(BallPosition::getColor).toList()).isEqualTo(colorsPerTurn.get(turn));
+        }
+        assertThat(pylos.canUndo()).isFalse();
+    }
+}
@@ -0,0 +1,46 @@
+package pylos.game;
+
+import org.junit.jupiter.api.Test;
+import pylos.game.command.Put;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ZobristKeyTest {
+
+    @Test
+    public void should_give_same_key_to_transpositions() {
+        Pylos pylos = new Pylos();
+        pylos.apply(new Put("a1"));
+        pylos.apply(new Put("b1"));
+        pylos.apply(new Put("a2"));
+        Pylos transposition = new Pylos();
+        transposition.apply(new Put("a2"));
+        transposition.apply(new Put("b1"));
+        transposition.apply(new Put("a1"));
+
+        assertThat(transposition.zobristKey()).isEqualTo(pylos.zobristKey());
+    }
+
+    @Test
+    public void should_give_different_keys_to_different_positions() {
+        Pylos pylos = new Pylos();
+        long initialKey = pylos.zobristKey();
+        pylos.apply(new Put("a1"));
+        Pylos other = new Pylos();
+        other.apply(new Put("a2"));
+
+        assertThat(pylos.zobristKey()).isNotEqualTo(initialKey).isNotEqualTo(other.zobristKey());
+    }
+
+    @Test
+    public void should_restore_key_on_undo() {
+        Pylos pylos = new Pylos();
+        long initialKey = pylos.zobristKey();
+        pylos.apply(new Put("a1"));
+
+        pylos.undo();
+
+        assertThat(pylos.zobristKey()).isEqualTo(initialKey);
+    }
+
+}
@@ -0,0 +1,56 @@
+package pylos.game.internal;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pylos.game.internal.Bitboard.bit;
+import static pylos.game.internal.Bitboard.index;
+
+public class BitboardTest {
+
+    @Test
+    public void should_index_coordinates_in_registry_order() {
+        assertThat(index("a1")).isEqualTo(0);
+        assertThat(index("a4")).isEqualTo(3);
+        assertThat(index("d4")).isEqualTo(15);
+        assertThat(index("e1")).isEqualTo(16);
+        assertThat(index("g3")).isEqualTo(24);
+        assertThat(index("h1")).isEqualTo(25);
+        assertThat(index("j1")).isEqualTo(29);
+        assertThat(Bitboard.coordinates(20)).isEqualTo("f2");
+    }
+
+    @Test
+    public void should_not_index_invalid_coordinates() {
+        assertThat(index("a6")).isEqualTo(-1);
+        assertThat(index("e0")).isEqualTo(-1);
+        assertThat(index("e4")).isEqualTo(-1);
+        assertThat(index("j2")).isEqualTo(-1);
+        assertThat(index("k1")).isEqualTo(-1);
+    }
+
+    @Test
+    public void should_support_upper_positions_with_a_square() {
+        assertThat(Bitboard.support(index("e1"))).isEqualTo(bit(index("a1")) | bit(index("b1")) | bit(index("a2")) | bit(index("b2")));
+        assertThat(Bitboard.support(index("i2"))).isEqualTo(bit(index("f2")) | bit(index("g2")) | bit(index("f3")) | bit(index("g3")));
+        assertThat(Bitboard.support(index("j1"))).isEqualTo(bit(index("h1")) | bit(index("i1")) | bit(index("h2")) | bit(index("i2")));
+        assertThat(Bitboard.cover(index("b2"))).isEqualTo(bit(index("e1")) | bit(index("e2")) | bit(index("f1")) | bit(index("f2")));
+    }
+
+    @Test
+    public void should_know_squares_and_lines() {
+        assertThat(Bitboard.patternCount()).isEqualTo(14 + 8 + 6);
+        int lineA = bit(index("a1")) | bit(index("a2")) | bit(index("a3")) | bit(index("a4"));
+        assertThat(Bitboard.completesPattern(lineA, index("a3"))).isTrue();
+        assertThat(Bitboard.completesPattern(lineA & ~bit(index("a1")), index("a3"))).isFalse();
+    }
+
+    @Test
+    public void should_only_accept_ball_on_complete_support() {
+        int square = Bitboard.support(index("e1"));
+
+        assertThat(Bitboard.freeToPut(0)).isEqualTo(0xFFFF);
+        assertThat(Bitboard.freeToPut(square)).isEqualTo(0xFFFF & ~square | bit(index("e1")));
+        assertThat(Bitboard.freeToTake(square | bit(index("e1")), square)).isZero();
+    }
+}
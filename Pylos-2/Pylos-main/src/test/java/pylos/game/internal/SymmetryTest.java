@@ -0,0 +1,40 @@
+package pylos.game.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pylos.game.internal.Bitboard.index;
+
+public class SymmetryTest {
+
+    @Test
+    public void should_map_corners_to_corners() {
+        Set<Integer> images = new HashSet<>();
+        for (int symmetry = 0; symmetry < Symmetry.COUNT; symmetry++) {
+            images.add(Symmetry.transform(symmetry, index("a1")));
+        }
+
+        assertThat(images).containsExactlyInAnyOrder(index("a1"), index("a4"), index("d1"), index("d4"));
+        assertThat(Symmetry.transform(0, index("b3"))).isEqualTo(index("b3"));
+        assertThat(Symmetry.transform(2, index("j1"))).isEqualTo(index("j1"));
+    }
+
+    @Test
+    public void should_keep_the_pyramid_structure() {
+        for (int symmetry = 0; symmetry < Symmetry.COUNT; symmetry++) {
+            for (int index = 0; index < Bitboard.SIZE; index++) {
+                int image = Symmetry.transform(symmetry, index);
+                assertThat(Bitboard.level(image)).isEqualTo(Bitboard.level(index));
+                assertThat(Bitboard.support(image)).isEqualTo(Symmetry.transformMask(symmetry, Bitboard.support(index)));
+                assertThat(Symmetry.transform(Symmetry.inverse(symmetry), image)).isEqualTo(index);
+            }
+            for (int i = 0; i < Bitboard.patternCount(); i++) {
+                int image = Symmetry.transformMask(symmetry, Bitboard.pattern(i));
+                assertThat(Bitboard.completesPattern(image, Integer.numberOfTrailingZeros(image))).isTrue();
+            }
+        }
+    }
+}
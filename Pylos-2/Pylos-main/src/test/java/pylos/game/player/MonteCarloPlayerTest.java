@@ -0,0 +1,73 @@
+package pylos.game.player;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pylos.game.Color;
+import pylos.game.Pylos;
+import pylos.game.command.Command;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MonteCarloPlayerTest {
+
+    private Pylos pylos;
+
+    @BeforeEach
+    public void createGame() {
+        pylos = new Pylos();
+    }
+
+    @Test
+    public void should_play_one_of_the_next_moves_without_changing_the_game() {
+        MonteCarloPlayer player = new MonteCarloPlayer(pylos, 200, 1);
+        List<Command> nextMoves = pylos.nextMoves().nextMoves;
+        long key = pylos.zobristKey();
+
+        Command nextMove = player.play(nextMoves);
+
+        assertThat(nextMoves).contains(nextMove);
+        assertThat(pylos.zobristKey()).isEqualTo(key);
+        assertThat(pylos.canUndo()).isFalse();
+    }
+
+    @Test
+    public void should_keep_the_subtree_of_the_position_reached() {
+        MonteCarloPlayer player = new MonteCarloPlayer(pylos, 200, 1);
+        pylos.apply(player.play(pylos.nextMoves().nextMoves));
+        pylos.apply(pylos.nextMoves().nextMoves.get(0));
+
+        player.play(pylos.nextMoves().nextMoves);
+
+        assertThat(player.rootVisits()).isGreaterThan(200);
+    }
+
+    @Test
+    public void should_report_its_last_search() {
+        MonteCarloPlayer player = new MonteCarloPlayer(pylos, 200, 1);
+        assertThat(player.statistics()).isEmpty();
+
+        player.play(pylos.nextMoves().nextMoves);
+
+        assertThat(player.statistics()).hasValueSatisfying(statistics -> {
+            assertThat(statistics.iterations()).isEqualTo(200);
+            assertThat(statistics.reusedVisits()).isZero();
+            assertThat(statistics.playoutsPerSecond()).isPositive();
+            assertThat(statistics.expectedWins()).isBetween(0.0, 1.0);
+        });
+    }
+
+    @Test
+    public void should_beat_a_random_player() {
+        MonteCarloPlayer player = new MonteCarloPlayer(pylos, 300, 1);
+        SplittableRandom random = new SplittableRandom(2);
+        while (!pylos.gameOver()) {
+            List<Command> nextMoves = pylos.nextMoves().nextMoves;
+            pylos.apply(pylos.currentColor() == Color.WHITE ? player.play(nextMoves) : nextMoves.get(random.nextInt(nextMoves.size())));
+        }
+
+        assertThat(pylos.winner()).hasValue(Color.WHITE);
+    }
+}
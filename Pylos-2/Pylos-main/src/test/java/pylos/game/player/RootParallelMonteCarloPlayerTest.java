@@ -0,0 +1,41 @@
+package pylos.game.player;
+
+import org.junit.jupiter.api.Test;
+import pylos.game.Pylos;
+import pylos.game.command.Command;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RootParallelMonteCarloPlayerTest {
+
+    @Test
+    public void should_play_one_of_the_next_moves_of_each_position() {
+        Pylos pylos = new Pylos();
+        RootParallelMonteCarloPlayer player = new RootParallelMonteCarloPlayer(pylos, Duration.ofMillis(50), 2);
+
+        for (int i = 0; i < 4; i++) {
+            List<Command> nextMoves = pylos.nextMoves().nextMoves;
+            Command nextMove = player.play(nextMoves);
+
+            assertThat(nextMoves).contains(nextMove);
+            pylos.apply(nextMove);
+        }
+    }
+
+    @Test
+    public void should_report_its_last_search_over_all_the_trees() {
+        Pylos pylos = new Pylos();
+        RootParallelMonteCarloPlayer player = new RootParallelMonteCarloPlayer(pylos, Duration.ofMillis(50), 2);
+
+        player.play(pylos.nextMoves().nextMoves);
+
+        assertThat(player.statistics()).hasValueSatisfying(statistics -> {
+            assertThat(statistics.iterations()).isPositive();
+            assertThat(statistics.playoutsPerSecond()).isPositive();
+            assertThat(statistics.expectedWins()).isBetween(0.0, 1.0);
+        });
+    }
+}
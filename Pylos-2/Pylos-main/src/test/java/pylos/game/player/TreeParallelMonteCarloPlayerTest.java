@@ -0,0 +1,59 @@
+package pylos.game.player;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pylos.game.Pylos;
+import pylos.game.command.Command;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TreeParallelMonteCarloPlayerTest {
+
+    private Pylos pylos;
+
+    private TreeParallelMonteCarloPlayer player;
+
+    @BeforeEach
+    public void createGame() {
+        pylos = new Pylos();
+        player = new TreeParallelMonteCarloPlayer(pylos, 4, 400, Long.MAX_VALUE, 1 << 16, new SplittableRandom(1));
+    }
+
+    @Test
+    public void should_play_one_of_the_next_moves_without_changing_the_game() {
+        List<Command> nextMoves = pylos.nextMoves().nextMoves;
+        long key = pylos.zobristKey();
+
+        Command nextMove = player.play(nextMoves);
+
+        assertThat(nextMoves).contains(nextMove);
+        assertThat(pylos.zobristKey()).isEqualTo(key);
+    }
+
+    @Test
+    public void should_take_back_all_virtual_losses() {
+        List<Command> nextMoves = pylos.nextMoves().nextMoves;
+
+        player.play(nextMoves);
+
+        int childVisits = 0;
+        for (int moveIndex = 0; moveIndex < nextMoves.size(); moveIndex++) {
+            childVisits += player.visits(moveIndex);
+        }
+        assertThat(player.rootVisits()).isEqualTo(400);
+        assertThat(childVisits).isEqualTo(400);
+    }
+
+    @Test
+    public void should_keep_the_subtree_of_the_position_reached() {
+        pylos.apply(player.play(pylos.nextMoves().nextMoves));
+        pylos.apply(pylos.nextMoves().nextMoves.get(0));
+
+        player.play(pylos.nextMoves().nextMoves);
+
+        assertThat(player.rootVisits()).isGreaterThan(400);
+    }
+}
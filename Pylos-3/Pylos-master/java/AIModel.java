@@ -1,9 +1,16 @@
-public interface AIModel {
- //   public static String name(){
- //       return "To Implement";
- //   }
- //   public static String findMove(Board b, Player p1, Player p2){
- //       return null;
- //   }
-//We can't inherit static methods! Darn.
+/**
+*	A search engine choosing the moves of an AI player. Each player gets its own instance, which keeps the state
+*	of its searches (tables, statistics...) from one turn to the next, so that several games can run at once.
+*	The available models are listed by AIModels.
+**/
+interface AIModel
+{
+	/**
+	*	Returns the best move.
+	*	@param board the board for which to find a move
+	*	@param p1 the player that a move is being searched for
+	*	@param p2 the other player
+	*	@return a string containing what the search has deemed the best move, or an empty string if a move could not be found
+	**/
+	String findMove(Board board, Player p1, Player p2);
 }
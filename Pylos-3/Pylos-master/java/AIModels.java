@@ -0,0 +1,61 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+*	The registry of the AI models a player can use. The type of an AI player is the index of its model here.
+**/
+final class AIModels
+{
+	private static final List<String> names = new ArrayList<>();
+	private static final List<Supplier<AIModel>> factories = new ArrayList<>();
+
+	static
+	{
+		register("MiniMax", Minimax::new);
+		register("Alternate Minimax", AltMiniMax::new);
+		register("Principal Variation Search", PVSearch::new);
+		register("Parallel Minimax", ParallelSearch::new);
+		register("Lazy SMP Minimax", LazySMPSearch::new);
+	}
+
+	private AIModels()
+	{
+	}
+
+	/**
+	*	Adds a model to the registry.
+	*	@param name the name shown to the user
+	*	@param factory creates a new instance of the model for each player using it
+	*	@return the index of the model, to be used as the type of its players
+	**/
+	public static synchronized int register(String name, Supplier<AIModel> factory)
+	{
+		names.add(name);
+		factories.add(factory);
+		return names.size() - 1;
+	}
+
+	public static synchronized int size()
+	{
+		return names.size();
+	}
+
+	public static synchronized String getName(int index)
+	{
+		return names.get(index);
+	}
+
+	/**
+	*	@return a new instance of the model at the given index
+	**/
+	public static AIModel create(int index)
+	{
+		Supplier<AIModel> factory;
+		synchronized (AIModels.class)
+		{
+			factory = factories.get(index);
+		}
+		return factory.get();
+	}
+}
@@ -3,7 +3,7 @@
 *	@version 1.0
 **/
 
-import java.util.*;
+import java.util.Random;
 
 class Board
 {
@@ -12,137 +12,253 @@ class Board
 	public static final int WHITE_SPHERE = 2;
 	ScoringEval evaluator;
 	
-	private int[] board;
-	private int[] rowOffsetTable = {0, 4, 8, 12, 16, 19, 22, 25, 27, 29};
-	// This maps a board index to the board positions that must have a sphere in them for a sphere to be placed at the key index
-	private HashMap<Integer, ArrayList<Integer>> cellsBelow;
-	private HashMap<Integer, ArrayList<Integer>> cellsAbove;
-	// This maps a board index to groups of 3 indices that must be checked to determine whether a square has been completed around it
-	private HashMap<Integer, ArrayList<Integer>> checkSquares;
+	// Bit i of each mask stands for board index i, from a1 (0) up to j1 (29)
+	private int blackSpheres;
+	private int whiteSpheres;
+	// Zobrist hash of the cells and of the sphere counts of both players, the side to move is only added by getHash
+	private long hash;
+	// Number of cells of each level holding each colour of sphere, and the sum of the heights (level + 1) of these
+	// cells, kept up to date by setCell so that the evaluation does not have to count them
+	private final int[][] levelCounts = new int[3][4];
+	private final int[] heightSums = new int[3];
+	
+	private static final int[] rowOffsetTable = {0, 4, 8, 12, 16, 19, 22, 25, 27, 29};
+	private static final String[] cellAddresses = new String[30];
+	private static final int[] levelOffsetTable = {0, 16, 25, 29};
+	private static final int[] levelMasks = new int[4];
+	private static final int[] levels = new int[30];
+	// This maps a board index to the cells that must have a sphere in them for a sphere to be placed at the key index
+	private static final int[] cellsBelow = new int[30];
+	private static final int[] cellsAbove = new int[30];
+	// This maps a board index to the rows, columns and 2x2 squares containing it, used to determine whether a move completes one of them
+	private static final int[] rowMasks = new int[30];
+	private static final int[] colMasks = new int[30];
+	private static final int[][] squareMasks = new int[30][];
+	private static final int[][] completionMasks = new int[30][];
+	// Random keys of the Zobrist hash, indexed by sphere colour. The keys of EMPTY_SPHERE are left at 0
+	private static final long[][] sphereKeys = new long[3][30];
+	private static final long[][] sphereCountKeys = new long[3][16];
+	private static final long[] sideToMoveKeys = new long[3];
+	
+	static
+	{
+		// A fixed seed keeps hashes stable from one run to the next
+		Random random = new Random(0x5EED_9B1A5L);
+		for (int colour = BLACK_SPHERE; colour <= WHITE_SPHERE; colour++)
+		{
+			for (int index = 0; index < 30; index++)
+				sphereKeys[colour][index] = random.nextLong();
+			for (int count = 0; count < 16; count++)
+				sphereCountKeys[colour][count] = random.nextLong();
+			sideToMoveKeys[colour] = random.nextLong();
+		}
+		
+		for (int row = 0; row < rowOffsetTable.length; row++)
+		{
+			int rowEnd = row + 1 < rowOffsetTable.length ? rowOffsetTable[row + 1] : 30;
+			for (int index = rowOffsetTable[row]; index < rowEnd; index++)
+				cellAddresses[index] = "" + (char)('a' + row) + (index - rowOffsetTable[row] + 1);
+		}
+		
+		for (int level = 0; level < 4; level++)
+		{
+			int size = 4 - level;
+			for (int row = 0; row < size; row++)
+			{
+				for (int col = 0; col < size; col++)
+				{
+					int index = levelOffsetTable[level] + row * size + col;
+					levels[index] = level;
+					levelMasks[level] |= 1 << index;
+					if (level > 0)
+					{
+						int below = levelOffsetTable[level - 1] + row * (size + 1) + col;
+						cellsBelow[index] = (1 << below) | (1 << (below + 1)) | (1 << (below + size + 1)) | (1 << (below + size + 2));
+					}
+					// Only the first and second level have rows and columns that need to be completed
+					if (level < 2)
+					{
+						for (int i = 0; i < size; i++)
+						{
+							rowMasks[index] |= 1 << (levelOffsetTable[level] + row * size + i);
+							colMasks[index] |= 1 << (levelOffsetTable[level] + i * size + col);
+						}
+					}
+				}
+			}
+		}
+		for (int index = 0; index < 30; index++)
+			for (int below = 0; below < 30; below++)
+				if ((cellsBelow[index] & (1 << below)) != 0)
+					cellsAbove[below] |= 1 << index;
+		
+		// The squares around a cell are exactly the supports of the cells resting on it
+		for (int index = 0; index < 30; index++)
+		{
+			squareMasks[index] = new int[Integer.bitCount(cellsAbove[index])];
+			int i = 0;
+			for (int above = cellsAbove[index]; above != 0; above &= above - 1)
+				squareMasks[index][i++] = cellsBelow[Integer.numberOfTrailingZeros(above)];
+			
+			completionMasks[index] = new int[squareMasks[index].length + (rowMasks[index] != 0 ? 2 : 0)];
+			System.arraycopy(squareMasks[index], 0, completionMasks[index], 0, squareMasks[index].length);
+			if (rowMasks[index] != 0)
+			{
+				completionMasks[index][squareMasks[index].length] = rowMasks[index];
+				completionMasks[index][squareMasks[index].length + 1] = colMasks[index];
+			}
+		}
+	}
 	
 	/**
 	*	Constructs a standard Pylos game board, containing 30 empty cells.
-	*	Also initializes the data required for some of the checking.
 	**/
 	public Board()
 	{
-		board = new int[30];
-		Arrays.fill(board, EMPTY_SPHERE);
-		initCellsBelow();
-		initCellsAbove();
-		initCheckSquares();
+		blackSpheres = 0;
+		whiteSpheres = 0;
+		// Both players start with 15 spheres in hand
+		hash = sphereCountKeys[BLACK_SPHERE][15] ^ sphereCountKeys[WHITE_SPHERE][15];
+		for (int index = 0; index < 30; index++)
+		{
+			levelCounts[EMPTY_SPHERE][levels[index]]++;
+			heightSums[EMPTY_SPHERE] += levels[index] + 1;
+		}
+		evaluator = new ScoringEval(this, 2, 3);
+	}
+	
+	/**
+	*	Constructs a copy of a board, which can then be played on independently, for example by another thread.
+	**/
+	public Board(Board other)
+	{
+		blackSpheres = other.blackSpheres;
+		whiteSpheres = other.whiteSpheres;
+		hash = other.hash;
+		for (int colour = 0; colour < 3; colour++)
+			System.arraycopy(other.levelCounts[colour], 0, levelCounts[colour], 0, 4);
+		System.arraycopy(other.heightSums, 0, heightSums, 0, 3);
 		evaluator = new ScoringEval(this, 2, 3);
 	}
+	
 	public int evaluateBoard(Player p1, Player p2){
 		return evaluator.evaluateBoard(p1, p2);
 	}
 	
 	/**
-	*	Initializes the map that stores the board indices of the cells below a given cell.
-	**/
-	private void initCellsBelow()
-	{
-		cellsBelow = new HashMap<>();
-		for (int i = 0; i < 16; i++)
-			cellsBelow.put(i, new ArrayList<Integer>());
-		cellsBelow.put(16, new ArrayList<Integer>(Arrays.asList(0, 1, 4, 5)));
-		cellsBelow.put(17, new ArrayList<Integer>(Arrays.asList(1, 2, 5, 6)));
-		cellsBelow.put(18, new ArrayList<Integer>(Arrays.asList(2, 3, 6, 7)));
-		cellsBelow.put(19, new ArrayList<Integer>(Arrays.asList(4, 5, 8, 9)));
-		cellsBelow.put(20, new ArrayList<Integer>(Arrays.asList(5, 6, 9, 10)));
-		cellsBelow.put(21, new ArrayList<Integer>(Arrays.asList(6, 7, 10, 11)));
-		cellsBelow.put(22, new ArrayList<Integer>(Arrays.asList(8, 9, 12, 13)));
-		cellsBelow.put(23, new ArrayList<Integer>(Arrays.asList(9, 10, 13, 14)));
-		cellsBelow.put(24, new ArrayList<Integer>(Arrays.asList(10, 11, 14, 15)));
-		cellsBelow.put(25, new ArrayList<Integer>(Arrays.asList(16, 17, 19, 20)));
-		cellsBelow.put(26, new ArrayList<Integer>(Arrays.asList(17, 18, 20, 21)));
-		cellsBelow.put(27, new ArrayList<Integer>(Arrays.asList(19, 20, 22, 23)));
-		cellsBelow.put(28, new ArrayList<Integer>(Arrays.asList(20, 21, 23, 24)));
-		cellsBelow.put(29, new ArrayList<Integer>(Arrays.asList(25, 26, 27, 28)));
-	}
-	
-	/**
-	*	Initializes the map that stores the board indices of the cells above a given cell.
-	**/
-	private void initCellsAbove()
-	{
-		cellsAbove = new HashMap<>();
-		// First level
-		cellsAbove.put(0, new ArrayList<Integer>(Arrays.asList(16)));
-		cellsAbove.put(1, new ArrayList<Integer>(Arrays.asList(16, 17)));
-		cellsAbove.put(2, new ArrayList<Integer>(Arrays.asList(17, 18)));
-		cellsAbove.put(3, new ArrayList<Integer>(Arrays.asList(18)));
-		cellsAbove.put(4, new ArrayList<Integer>(Arrays.asList(16, 19)));
-		cellsAbove.put(5, new ArrayList<Integer>(Arrays.asList(16, 17, 19, 20)));
-		cellsAbove.put(6, new ArrayList<Integer>(Arrays.asList(17, 18, 20, 21)));
-		cellsAbove.put(7, new ArrayList<Integer>(Arrays.asList(18, 21)));
-		cellsAbove.put(8, new ArrayList<Integer>(Arrays.asList(19, 22)));
-		cellsAbove.put(9, new ArrayList<Integer>(Arrays.asList(19, 20, 22, 23)));
-		cellsAbove.put(10, new ArrayList<Integer>(Arrays.asList(20, 21, 23, 24)));
-		cellsAbove.put(11, new ArrayList<Integer>(Arrays.asList(21, 24)));
-		cellsAbove.put(12, new ArrayList<Integer>(Arrays.asList(22)));
-		cellsAbove.put(13, new ArrayList<Integer>(Arrays.asList(22, 23)));
-		cellsAbove.put(14, new ArrayList<Integer>(Arrays.asList(23, 24)));
-		cellsAbove.put(15, new ArrayList<Integer>(Arrays.asList(24)));
-		
-		// Second level
-		cellsAbove.put(16, new ArrayList<Integer>(Arrays.asList(25)));
-		cellsAbove.put(17, new ArrayList<Integer>(Arrays.asList(25, 26)));
-		cellsAbove.put(18, new ArrayList<Integer>(Arrays.asList(26)));
-		cellsAbove.put(19, new ArrayList<Integer>(Arrays.asList(25, 27)));
-		cellsAbove.put(20, new ArrayList<Integer>(Arrays.asList(25, 26, 27, 28)));
-		cellsAbove.put(21, new ArrayList<Integer>(Arrays.asList(26, 28)));
-		cellsAbove.put(22, new ArrayList<Integer>(Arrays.asList(27)));
-		cellsAbove.put(23, new ArrayList<Integer>(Arrays.asList(27, 28)));
-		cellsAbove.put(24, new ArrayList<Integer>(Arrays.asList(28)));
-		
-		// Third level
-		cellsAbove.put(25, new ArrayList<Integer>(Arrays.asList(29)));
-		cellsAbove.put(26, new ArrayList<Integer>(Arrays.asList(29)));
-		cellsAbove.put(27, new ArrayList<Integer>(Arrays.asList(29)));
-		cellsAbove.put(28, new ArrayList<Integer>(Arrays.asList(29)));
-		
-		// Fourth level
-		cellsAbove.put(29, new ArrayList<Integer>());
+	*	@param colour one of BLACK_SPHERE or WHITE_SPHERE
+	*	@return the mask of the cells containing a sphere of the given colour
+	**/
+	int getSpheres(int colour)
+	{
+		return colour == BLACK_SPHERE ? blackSpheres : (colour == WHITE_SPHERE ? whiteSpheres : 0);
 	}
 	
 	/**
-	*	Initializes the map that, for a given cell, stores, in groups of 3, the indices of the other cells
-	*	that together with the given cell, form a 2x2 square. This method is used when checking whether
-	*	a move will lead to a completion.
+	*	Returns the Zobrist hash of the position: the cell contents, the number of spheres each player has in hand
+	*	and the side to move. The hash is updated along with the board, so this takes constant time.
+	*	@param toMove the player whose turn it is
+	*	@return a 64 bit hash of the position
 	**/
-	private void initCheckSquares()
+	public long getHash(Player toMove)
 	{
-		checkSquares = new HashMap<Integer, ArrayList<Integer>>();
-		
-		// First level
-		checkSquares.put(0, new ArrayList<Integer>(Arrays.asList(1, 4, 5)));
-		checkSquares.put(1, new ArrayList<Integer>(Arrays.asList(0, 4, 5, 2, 5, 6)));
-		checkSquares.put(2, new ArrayList<Integer>(Arrays.asList(1, 5, 6, 3, 6, 7)));
-		checkSquares.put(3, new ArrayList<Integer>(Arrays.asList(2, 6, 7)));
-		checkSquares.put(4, new ArrayList<Integer>(Arrays.asList(0, 1, 5, 5, 8, 9)));
-		checkSquares.put(5, new ArrayList<Integer>(Arrays.asList(0, 1, 4, 1, 2, 6, 4, 8, 9, 6, 9, 10)));
-		checkSquares.put(6, new ArrayList<Integer>(Arrays.asList(1, 2, 5, 2, 3, 7, 5, 9, 10, 7, 10, 11)));
-		checkSquares.put(7, new ArrayList<Integer>(Arrays.asList(2, 3, 6, 6, 10, 11)));
-		checkSquares.put(8, new ArrayList<Integer>(Arrays.asList(4, 5, 9, 9, 12, 13)));
-		checkSquares.put(9, new ArrayList<Integer>(Arrays.asList(4, 5, 8, 5, 6, 10, 8, 12, 13, 10, 13, 14)));
-		checkSquares.put(10, new ArrayList<Integer>(Arrays.asList(5, 6, 9, 6, 7, 11, 9, 13, 14, 11, 14, 15)));
-		checkSquares.put(11, new ArrayList<Integer>(Arrays.asList(6, 7, 10, 10, 14, 15)));
-		checkSquares.put(12, new ArrayList<Integer>(Arrays.asList(8, 9, 13)));
-		checkSquares.put(13, new ArrayList<Integer>(Arrays.asList(8, 9, 12, 9, 10, 14)));
-		checkSquares.put(14, new ArrayList<Integer>(Arrays.asList(9, 10, 13, 10, 11, 15)));
-		checkSquares.put(15, new ArrayList<Integer>(Arrays.asList(10, 11, 14)));
-		
-		// Second level
-		checkSquares.put(16, new ArrayList<Integer>(Arrays.asList(17, 19, 20)));
-		checkSquares.put(17, new ArrayList<Integer>(Arrays.asList(16, 19, 20, 18, 20, 21)));
-		checkSquares.put(18, new ArrayList<Integer>(Arrays.asList(17, 20, 21)));
-		checkSquares.put(19, new ArrayList<Integer>(Arrays.asList(16, 17, 20, 20, 22, 23)));
-		checkSquares.put(20, new ArrayList<Integer>(Arrays.asList(16, 17, 19, 17, 18, 21, 19, 22, 23, 21, 23, 24)));
-		checkSquares.put(21, new ArrayList<Integer>(Arrays.asList(17, 18, 20, 20, 23, 24)));
-		checkSquares.put(22, new ArrayList<Integer>(Arrays.asList(19, 20, 23)));
-		checkSquares.put(23, new ArrayList<Integer>(Arrays.asList(19, 20, 22, 20, 21, 24)));
-		checkSquares.put(24, new ArrayList<Integer>(Arrays.asList(20, 21, 23)));
+		return hash ^ sideToMoveKeys[toMove.getColour()];
+	}
+	
+	/**
+	*	@return the hash of getHash without the side to move, for what does not depend on it like the evaluation
+	**/
+	long getPositionHash()
+	{
+		return hash;
+	}
+	
+	/**
+	*	Returns a hash of the canonical form of the position, that is the image of the board under the symmetry
+	*	given by getCanonicalSymmetry. Positions that are symmetric to each other have the same canonical hash,
+	*	so tables keyed on it store them only once. The spheres in hand need no hashing, as they are the ones
+	*	not on the board.
+	*	@param toMove the player whose turn it is
+	*	@return a 64 bit hash of the canonical form of the position
+	**/
+	public long getCanonicalHash(Player toMove)
+	{
+		return getImageHash(toMove, getCanonicalSymmetry());
+	}
+	
+	/**
+	*	@param toMove the player whose turn it is
+	*	@param symmetry one of the symmetries of Symmetries
+	*	@return a 64 bit hash of the image of the position under the symmetry
+	**/
+	public long getImageHash(Player toMove, int symmetry)
+	{
+		// The key holds the whole position, mixing its bits spreads it over the table indices
+		long key = getImageKey(symmetry) | (long) toMove.getColour() << 60;
+		key = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+		key = (key ^ (key >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return key ^ (key >>> 33);
+	}
+	
+	/**
+	*	Returns the symmetry mapping the board to its canonical form, which is the image of the board with the
+	*	smallest masks. Moves stored along with a canonical hash should be transformed by it (see Symmetries.transformMove).
+	*	@return one of the symmetries of Symmetries
+	**/
+	public int getCanonicalSymmetry()
+	{
+		int canonical = 0;
+		int smallestBlack = blackSpheres;
+		int smallestWhite = whiteSpheres;
+		for (int symmetry = 1; symmetry < Symmetries.COUNT; symmetry++)
+		{
+			// The black spheres are compared first, the white ones only when needed
+			int black = Symmetries.transformMask(symmetry, blackSpheres);
+			if (black > smallestBlack)
+				continue;
+			int white = Symmetries.transformMask(symmetry, whiteSpheres);
+			if (black < smallestBlack || white < smallestWhite)
+			{
+				smallestBlack = black;
+				smallestWhite = white;
+				canonical = symmetry;
+			}
+		}
+		return canonical;
+	}
+	
+	private long getImageKey(int symmetry)
+	{
+		return (long) Symmetries.transformMask(symmetry, blackSpheres) << 30 | Symmetries.transformMask(symmetry, whiteSpheres);
+	}
+	
+	/**
+	*	Computes the hash of getHash from scratch, it should always be equal to it.
+	**/
+	long computeHash(Player toMove, Player other)
+	{
+		long computed = sideToMoveKeys[toMove.getColour()]
+			^ sphereCountKeys[toMove.getColour()][toMove.getNumSpheres()] ^ sphereCountKeys[other.getColour()][other.getNumSpheres()];
+		for (int index = 0; index < 30; index++)
+			computed ^= sphereKeys[getCell(index)][index];
+		return computed;
+	}
+	
+	/**
+	*	Changes the number of spheres in hand of a player, keeping the hash up to date.
+	**/
+	private void setNumSpheres(Player player, int numSpheres)
+	{
+		hash ^= sphereCountKeys[player.getColour()][player.getNumSpheres()] ^ sphereCountKeys[player.getColour()][numSpheres];
+		player.setNumSpheres(numSpheres);
+	}
+	
+	/**
+	*	@return the mask of the cells containing a sphere of either colour
+	**/
+	int getOccupied()
+	{
+		return blackSpheres | whiteSpheres;
 	}
 	
 	/**
@@ -150,12 +266,49 @@ class Board
 	*	@param cell the given cell address
 	*	@return an integer index into the board array
 	**/
-	private int getCellIndex(String cell)
+	private static int getCellIndex(String cell)
 	{
 		cell = cell.toLowerCase();
 		return rowOffsetTable[(int)(cell.charAt(0)-'a')] + Character.digit(cell.charAt(1), 10)-1;
 	}
 	
+	/**
+	*	Converts a cell address into a board index, as used by packed moves
+	*	@param cell a cell address, which may be invalid
+	*	@return the board index of the cell, or Moves.NONE if the address isn't valid
+	**/
+	static int getCellIndexOrNone(String cell)
+	{
+		return isValidCellAddress(cell) ? getCellIndex(cell) : Moves.NONE;
+	}
+	
+	/**
+	*	@param index a board index
+	*	@return the address of the cell, as typed on the console
+	**/
+	static String getCellAddress(int index)
+	{
+		return cellAddresses[index];
+	}
+	
+	/**
+	*	@param index a board index
+	*	@return the mask of the cells that must hold a sphere for a sphere to rest at the index
+	**/
+	static int getCellsBelow(int index)
+	{
+		return cellsBelow[index];
+	}
+	
+	/**
+	*	Returns the level that a board index resides in. This can be one of (0, 1, 2, 3)
+	*	with 0 being the bottom 4x4 level, and 3 being the top of the pyramid.
+	**/
+	static int getLevel(int index)
+	{
+		return levels[index];
+	}
+	
 	/**
 	*	Returns the level that a cell resides in. This can be one of (0, 1, 2, 3)
 	*	with 0 being the bottom 4x4 level, and 3 being the top of the pyramid.
@@ -165,15 +318,7 @@ class Board
 		if (!isValidCellAddress(cell))
 			throw new InvalidCellAddressException();
 			
-		char c = cell.charAt(0);
-		if (c >= 'a' && c <= 'd')
-			return 0;
-		else if (c >= 'e' && c <= 'g')
-			return 1;
-		else if (c >= 'h' && c <= 'i')
-			return 2;
-		else
-			return 3;
+		return getLevel(getCellIndex(cell));
 	}
 	
 	/**
@@ -184,7 +329,7 @@ class Board
 	*	@param addr a string to be checked
 	*	@return a boolean indicating whether the string parameter is a valid cell address
 	**/
-	public boolean isValidCellAddress(String addr)
+	public static boolean isValidCellAddress(String addr)
 	{
 		addr = addr.toLowerCase();
 		if (addr.length() != 2 || !Character.isLetter(addr.charAt(0)) || !Character.isDigit(addr.charAt(1)))
@@ -213,16 +358,13 @@ class Board
 	**/
 	public boolean canRemoveSphere(String cell, Player player)
 	{
-		if (getCell(cell) != player.getColour())
-			return false;
+		return canRemoveSphere(getCellIndex(cell), player);
+	}
+	
+	boolean canRemoveSphere(int index, Player player)
+	{
 		// Can't remove sphere if there are spheres resting above it
-		ArrayList<Integer> checkCells = cellsAbove.get(getCellIndex(cell));
-		for (Integer index: checkCells)
-		{
-			if (board[index] != EMPTY_SPHERE)
-				return false;
-		}
-		return true;
+		return (getSpheres(player.getColour()) & (1 << index)) != 0 && (getOccupied() & cellsAbove[index]) == 0;
 	}
 	
 	/**
@@ -234,8 +376,13 @@ class Board
 	**/
 	public void removeSphere(String cell, Player player)
 	{
-		setCell(cell, EMPTY_SPHERE);
-		player.setNumSpheres(player.getNumSpheres()+1);
+		removeSphere(getCellIndex(cell), player);
+	}
+	
+	void removeSphere(int index, Player player)
+	{
+		setCell(index, EMPTY_SPHERE);
+		setNumSpheres(player, player.getNumSpheres()+1);
 	}
 	
 	/**
@@ -248,16 +395,16 @@ class Board
 	**/
 	public boolean canPlaceSphere(String cell, Player player)
 	{
-		if (getCell(cell) != EMPTY_SPHERE || player.getNumSpheres() <= 0 || (player.getColour() == EMPTY_SPHERE))
+		return canPlaceSphere(getCellIndex(cell), player);
+	}
+	
+	boolean canPlaceSphere(int index, Player player)
+	{
+		if (player.getNumSpheres() <= 0 || (player.getColour() == EMPTY_SPHERE))
 			return false;
 		
-		ArrayList<Integer> checkCells = cellsBelow.get(getCellIndex(cell));
-		for (Integer index: checkCells)
-		{
-			if (board[index] == EMPTY_SPHERE)
-				return false;
-		}
-		return true;
+		int occupied = getOccupied();
+		return (occupied & (1 << index)) == 0 && (occupied & cellsBelow[index]) == cellsBelow[index];
 	}
 	
 	/**
@@ -271,36 +418,30 @@ class Board
 	*/
 	public boolean canRaiseSphere(String from, String to, Player player)
 	{
-		// TODO: Don't allow player to raise to lower level
 		from = from.toLowerCase();
 		to = to.toLowerCase();
-		if (!isValidCellAddress(from) || !isValidCellAddress(to) || getCell(from) != player.getColour() || getCell(to) != EMPTY_SPHERE)
+		if (!isValidCellAddress(from) || !isValidCellAddress(to))
 			return false;
-			
-		if (getLevel(to) <= getLevel(from))
+		
+		return canRaiseSphere(getCellIndex(from), getCellIndex(to), player);
+	}
+	
+	boolean canRaiseSphere(int from, int to, Player player)
+	{
+		int occupied = getOccupied();
+		if ((getSpheres(player.getColour()) & (1 << from)) == 0 || (occupied & (1 << to)) != 0)
 			return false;
-			
-		// Check whether there are any spheres above the sphere to be raised
-		ArrayList<Integer> cellsAboveFrom = cellsAbove.get(getCellIndex(from));
-		for (Integer index: cellsAboveFrom)
-		{
-			if (board[index] != EMPTY_SPHERE)
-				return false;
-		}
 		
-		// Can't raise a sphere onto the first level (indices 0-15)
-		if (getCellIndex(to) >= 0 && getCellIndex(to) <= 15)
+		// Can't raise to the same or a lower level, which also rules out raising onto the first level
+		if (levels[to] <= levels[from])
 			return false;
 		
-		// Ensure all cells below to are filled, and that none of them are the sphere which we are raising
-		ArrayList<Integer> cellsBelowTo = cellsBelow.get(getCellIndex(to));
-		for (Integer index: cellsBelowTo)
-		{
-			if (board[index] == EMPTY_SPHERE || index == getCellIndex(from))
-				return false;
-		}
+		// Check whether there are any spheres above the sphere to be raised
+		if ((occupied & cellsAbove[from]) != 0)
+			return false;
 		
-		return true;
+		// Ensure all cells below to are filled, and that none of them are the sphere which we are raising
+		return (occupied & cellsBelow[to]) == cellsBelow[to] && (cellsBelow[to] & (1 << from)) == 0;
 	}
 	
 	/**
@@ -312,8 +453,13 @@ class Board
 	**/
 	public void raiseSphere(String from, String to)
 	{
-		board[getCellIndex(to)] = board[getCellIndex(from)];
-		board[getCellIndex(from)] = EMPTY_SPHERE;
+		raiseSphere(getCellIndex(from), getCellIndex(to));
+	}
+	
+	void raiseSphere(int from, int to)
+	{
+		setCell(to, getCell(from));
+		setCell(from, EMPTY_SPHERE);
 	}
 	
 	/**
@@ -330,14 +476,15 @@ class Board
 	**/
 	public boolean placeMoveCompletes(String move, Player player)
 	{
-		if (!canPlaceSphere(move, player))
+		return placeMoveCompletes(getCellIndex(move), player);
+	}
+	
+	boolean placeMoveCompletes(int index, Player player)
+	{
+		if (!canPlaceSphere(index, player))
 			throw new InvalidMoveException();
-			
-		setCell(move, player.getColour());
-		boolean completes = checkForCompleteRow(move) || checkForCompleteCol(move) || checkForCompleteSquare(move);
-		setCell(move, EMPTY_SPHERE);
 		
-		return completes;
+		return completes(index, getSpheres(player.getColour()) | (1 << index));
 	}
 	
 	/**
@@ -353,15 +500,31 @@ class Board
 	*	@throws InvalidMoveException if the provided string does not contain a valid raise move
 	**/
 	public boolean raiseMoveCompletes(String from, String to, Player player)
+	{
+		return raiseMoveCompletes(getCellIndex(from), getCellIndex(to), player);
+	}
+	
+	boolean raiseMoveCompletes(int from, int to, Player player)
 	{
 		if (!canRaiseSphere(from, to, player))
 			throw new InvalidMoveException();
-			
-		raiseSphere(from, to);
-		boolean completes = checkForCompleteRow(to) || checkForCompleteCol(to) || checkForCompleteSquare(to);
-		raiseSphere(to, from);
 		
-		return completes;
+		return completes(to, getSpheres(player.getColour()) & ~(1 << from) | (1 << to));
+	}
+	
+	/**
+	*	Returns whether any of the rows, columns or 2x2 squares containing the given index is filled by spheres.
+	*	@param index a board index
+	*	@param spheres the mask of the spheres of a single colour
+	**/
+	private static boolean completes(int index, int spheres)
+	{
+		for (int mask: completionMasks[index])
+		{
+			if ((spheres & mask) == mask)
+				return true;
+		}
+		return false;
 	}
 	
 	/**
@@ -378,195 +541,234 @@ class Board
 		if (move == null)
 			return false;
 			
-		String[] moveComponents = move.split(" ");
-		// A "place" move
-		if (moveComponents[0].equals("place") && moveComponents.length >= 2 && moveComponents.length <= 3)
+		if (move.equals("score"))
+			return true;
+		else if (move.startsWith("score "))
+			return isValidMove(move.substring("score".length()+1), player);
+		
+		int packedMove = Moves.parse(move);
+		return packedMove != Moves.NO_MOVE && isLegal(packedMove, player);
+	}
+	
+	/**
+	*	Returns true if the packed move is legal for the player, following the same rules as isValidMove.
+	*	@param move a move packed by the Moves class
+	*	@param player the player making the move
+	*	@return a boolean indicating whether the provided move made by the player is valid or not
+	**/
+	public boolean isLegal(int move, Player player)
+	{
+		int to = Moves.to(move);
+		int spheres = getSpheres(player.getColour());
+		int occupied = getOccupied();
+		
+		if (Moves.type(move) == Moves.PLACE)
 		{
-			if (!isValidCellAddress(moveComponents[1]) || !canPlaceSphere(moveComponents[1], player))
+			if (!canPlaceSphere(to, player))
 				return false;
-				
-			if (placeMoveCompletes(moveComponents[1], player))
-			{
-				if (moveComponents.length == 2)
-					return false;
-					
-				String[] removeComponents = moveComponents[2].split(":");
-				if (removeComponents.length == 2 || removeComponents.length == 3)
-				{
-					if (!removeComponents[0].equals("r"))
-						return false;
-						
-					boolean isValid = true;
-					
-					setCell(moveComponents[1], player.getColour());
-					ArrayList<Integer> originals = new ArrayList<>();
-					// Remove cells in order, it is an invalid move if we are unable to do this for any of the cells
-					for (int i = 1; i < removeComponents.length; i++)
-					{
-						if (!canRemoveSphere(removeComponents[i], player))
-						{
-							isValid = false;
-							break;
-						}
-						originals.add(getCell(removeComponents[i]));
-						setCell(removeComponents[i], EMPTY_SPHERE);
-					}
-					for (int i = 0; i < originals.size(); i++)
-					{
-						setCell(removeComponents[i+1], originals.get(i));
-					}
-					
-					setCell(moveComponents[1], EMPTY_SPHERE);
-					
-					return isValid;
-				}
-			}
-			else if (moveComponents.length == 2)
-				return true;
 		}
-		// A "raise" move
-		else if (moveComponents[0].equals("raise") && moveComponents.length >= 3 && moveComponents.length <= 4)
+		else if (Moves.type(move) == Moves.RAISE)
 		{
-			if (!isValidCellAddress(moveComponents[1]) || !isValidCellAddress(moveComponents[2]) || !canRaiseSphere(moveComponents[1], moveComponents[2], player))
+			if (!canRaiseSphere(Moves.from(move), to, player))
 				return false;
-				
-			if (raiseMoveCompletes(moveComponents[1], moveComponents[2], player))
+			spheres &= ~(1 << Moves.from(move));
+			occupied &= ~(1 << Moves.from(move));
+		}
+		else
+			return false;
+		
+		spheres |= 1 << to;
+		occupied |= 1 << to;
+		
+		// Moves that complete a row, column or square must remove at least one sphere, the others can't remove any
+		if (!completes(to, spheres))
+			return Moves.firstRemoval(move) == Moves.NONE && Moves.secondRemoval(move) == Moves.NONE;
+		
+		// Remove cells in order, it is an invalid move if we are unable to do this for any of the cells
+		int removal = Moves.firstRemoval(move);
+		if (removal == Moves.NONE || (spheres & (1 << removal)) == 0 || (occupied & cellsAbove[removal]) != 0)
+			return false;
+		
+		spheres &= ~(1 << removal);
+		occupied &= ~(1 << removal);
+		removal = Moves.secondRemoval(move);
+		return removal == Moves.NONE || ((spheres & (1 << removal)) != 0 && (occupied & cellsAbove[removal]) == 0);
+	}
+	
+	/**
+	*	Fills the list with every legal move of the player, in the order a1..j1 of the placed or raised sphere:
+	*	first the place move of a cell, then the raises of the sphere it contains. Moves completing a row,
+	*	column or square are emitted once per legal combination of removals.
+	*	@param player the player to move
+	*	@param moves the buffer to fill, its previous content is discarded
+	**/
+	public void generateMoves(Player player, MoveList moves)
+	{
+		generateMoves(player, moves, true);
+	}
+	
+	/**
+	*	Fills the list with the raises of the player that don't complete anything, in the order of generateMoves.
+	*	@param player the player to move
+	*	@param moves the buffer to fill, its previous content is discarded
+	**/
+	public void generateRaises(Player player, MoveList moves)
+	{
+		generateMoves(player, moves, false);
+	}
+	
+	private void generateMoves(Player player, MoveList moves, boolean allMoves)
+	{
+		boolean canPlace = player.getNumSpheres() > 0 && player.getColour() != EMPTY_SPHERE;
+		generateMoves(getSpheres(player.getColour()), getOccupied(), canPlace, moves, allMoves);
+	}
+	
+	/**
+	*	Generates the moves of generateMoves from the masks of a position alone, for the code that works on
+	*	positions without a board such as the tablebase generator.
+	*	@param spheres the mask of the spheres of the player to move
+	*	@param occupied the mask of the occupied cells
+	*	@param canPlace whether the player has spheres left in hand
+	**/
+	static void generateMoves(int spheres, int occupied, boolean canPlace, MoveList moves, boolean allMoves)
+	{
+		moves.clear();
+		for (int cell = 0; cell < 30; cell++)
+		{
+			int cellBit = 1 << cell;
+			if (allMoves && canPlace && (occupied & cellBit) == 0 && (occupied & cellsBelow[cell]) == cellsBelow[cell])
+				addWithRemovals(moves, Moves.place(cell), cell, spheres | cellBit, occupied | cellBit);
+			
+			// Only spheres of the player's colour with nothing above them can be raised, and never from the top
+			if ((spheres & cellBit) == 0 || (occupied & cellsAbove[cell]) != 0 || levels[cell] == 3)
+				continue;
+			for (int to = levelOffsetTable[levels[cell] + 1]; to < 30; to++)
 			{
-				if (moveComponents.length == 3)
-					return false;
-				
-				String[] removeComponents = moveComponents[3].split(":");
-				
-				if ((removeComponents.length != 2 && removeComponents.length != 3) || !removeComponents[0].equals("r"))
-					return false;
-					
-				boolean isValid = true;
-				
-				raiseSphere(moveComponents[1], moveComponents[2]);
-				ArrayList<Integer> originals = new ArrayList<>();
-				for (int i = 1; i < removeComponents.length; i++)
+				int toBit = 1 << to;
+				if ((occupied & toBit) == 0 && (occupied & cellsBelow[to]) == cellsBelow[to] && (cellsBelow[to] & cellBit) == 0)
 				{
-					if (!canRemoveSphere(removeComponents[i], player))
-					{
-						isValid = false;
-						break;
-					}
-					originals.add(getCell(removeComponents[i]));
-					setCell(removeComponents[i], EMPTY_SPHERE);
+					if (allMoves)
+						addWithRemovals(moves, Moves.raise(cell, to), to, spheres & ~cellBit | toBit, occupied & ~cellBit | toBit);
+					else if (!completes(to, spheres & ~cellBit | toBit))
+						moves.add(Moves.raise(cell, to));
 				}
-				for (int i = 0; i < originals.size(); i++)
-				{
-					setCell(removeComponents[i+1], originals.get(i));
-				}
-				
-				raiseSphere(moveComponents[2], moveComponents[1]);
-				
-				return isValid;
-			}
-			else if (moveComponents.length == 3)
-				return true;
-		}else if(moveComponents[0].equals("score")){
-			if(moveComponents.length == 1){
-				return true;
-			}else{
-				return isValidMove(move.substring("score".length()+1), player);
 			}
 		}
-		return false;
 	}
 	
 	/**
-	*	Assumes the provided move is valid and makes it for the provided player. This method also manages
+	*	Adds the move as is if it doesn't complete anything, otherwise adds it with every legal single and double removal.
+	*	@param spheres the mover's spheres once the move is made
+	*	@param occupied the occupied cells once the move is made
+	**/
+	private static void addWithRemovals(MoveList moves, int move, int to, int spheres, int occupied)
+	{
+		if (!completes(to, spheres))
+		{
+			moves.add(move);
+			return;
+		}
+		for (int first = spheres & ~getCovered(occupied); first != 0; first &= first - 1)
+		{
+			int firstRemoval = Integer.numberOfTrailingZeros(first);
+			moves.add(Moves.withRemovals(move, firstRemoval, Moves.NONE));
+			
+			int remaining = occupied & ~(1 << firstRemoval);
+			for (int second = spheres & remaining & ~getCovered(remaining); second != 0; second &= second - 1)
+				moves.add(Moves.withRemovals(move, firstRemoval, Integer.numberOfTrailingZeros(second)));
+		}
+	}
+	
+	/**
+	*	@param occupied a mask of occupied cells
+	*	@return the mask of cells having at least one sphere resting above them
+	**/
+	private static int getCovered(int occupied)
+	{
+		int covered = 0;
+		for (int upper = occupied & ~levelMasks[0]; upper != 0; upper &= upper - 1)
+			covered |= cellsBelow[Integer.numberOfTrailingZeros(upper)];
+		return covered;
+	}
+	
+	/**
+	*	Makes the provided move for the provided player. This method also manages
 	*	the player's sphere count based on the move. So for example a place move with no removals will deduct
 	*	1 from the player's sphere count.
-	*	@param move - a string that is assumed to contain a valid move
+	*	@param move - a string containing a move
 	*	@param player - the player who's making the move
+	*	@throws InvalidMoveException if the move isn't valid
 	*/
 	public void move(String move, Player player)
 	{
-		if (!isValidMove(move, player))
+		int packedMove = Moves.parse(move);
+		if (packedMove == Moves.NO_MOVE || !isLegal(packedMove, player))
 			throw new InvalidMoveException();
 		
-		String components[] = move.split(" ");
+		move(packedMove, player);
+	}
+	
+	/**
+	*	Assumes the provided packed move is legal and makes it for the provided player, managing the
+	*	player's sphere count as move(String, Player) does.
+	*	@param move - a packed move that is assumed to be legal
+	*	@param player - the player who's making the move
+	**/
+	public void move(int move, Player player)
+	{
 		// "Place" a sphere
-		if (components[0].equals("place"))
+		if (Moves.type(move) == Moves.PLACE)
 		{
-			setCell(components[1], player.getColour());
-			player.setNumSpheres(player.getNumSpheres()-1);
-			
-			if (components.length == 3)
-			{
-				String[] removeCells = components[2].split(":");
-				
-				for (int r = 1; r < removeCells.length; r++)
-				{
-					setCell(removeCells[r], EMPTY_SPHERE);
-					player.setNumSpheres(player.getNumSpheres()+1);
-				}
-			}
+			setCell(Moves.to(move), player.getColour());
+			setNumSpheres(player, player.getNumSpheres()-1);
 		}
 		// "Raise" a sphere
-		else if (components[0].equals("raise"))
-		{
-			raiseSphere(components[1], components[2]);
-			
-			if (components.length == 4)
-			{
-				String[] removeCells = components[3].split(":");
-				
-				for (int r = 1; r < removeCells.length; r++)
-				{
-					setCell(removeCells[r], EMPTY_SPHERE);
-					player.setNumSpheres(player.getNumSpheres()+1);
-				}
-			}
-		}
+		else
+			raiseSphere(Moves.from(move), Moves.to(move));
+		
+		if (Moves.firstRemoval(move) != Moves.NONE)
+			removeSphere(Moves.firstRemoval(move), player);
+		if (Moves.secondRemoval(move) != Moves.NONE)
+			removeSphere(Moves.secondRemoval(move), player);
 	}
 	
 	/**
-	*	Assumes that the provided move was made and is valid, and undoes it. This method is used
-	*	by the minimax class to return the board to it's original state after a move has been traversed.
+	*	Assumes that the provided move was made and is valid, and undoes it.
 	*	@param move the move to be undone
 	*	@param player the player who made the move that is to be undone
 	**/
 	public void undoMove(String move, Player player)
 	{
-		String[] parts = move.split(" ");
-		
-		if (parts[0].equals("place"))
+		undoMove(Moves.parse(move), player);
+	}
+	
+	/**
+	*	Assumes that the provided packed move was made and is valid, and undoes it. This method is used
+	*	by the minimax class to return the board to it's original state after a move has been traversed.
+	*	@param move the packed move to be undone
+	*	@param player the player who made the move that is to be undone
+	**/
+	public void undoMove(int move, Player player)
+	{
+		// Return any removed spheres
+		if (Moves.secondRemoval(move) != Moves.NONE)
 		{
-			// Return any removed spheres
-			if (parts.length == 3)
-			{
-				String[] removedCells = parts[2].split(":");
-				
-				for (int r = 1; r < removedCells.length; r++)
-				{
-					setCell(removedCells[r], player.getColour());
-					player.setNumSpheres(player.getNumSpheres() - 1);
-				}
-			}
-			
-			setCell(parts[1], EMPTY_SPHERE);
-			player.setNumSpheres(player.getNumSpheres() + 1);
+			setCell(Moves.secondRemoval(move), player.getColour());
+			setNumSpheres(player, player.getNumSpheres() - 1);
 		}
-		else if (parts[0].equals("raise"))
+		if (Moves.firstRemoval(move) != Moves.NONE)
 		{
-			
-			// Return any removed spheres
-			if (parts.length == 4)
-			{
-				String[] removedCells = parts[3].split(":");
-				
-				for (int r = 1; r < removedCells.length; r++)
-				{
-					setCell(removedCells[r], player.getColour());
-					player.setNumSpheres(player.getNumSpheres() - 1);
-				}
-			}
-
-			raiseSphere(parts[2], parts[1]);
+			setCell(Moves.firstRemoval(move), player.getColour());
+			setNumSpheres(player, player.getNumSpheres() - 1);
+		}
+		
+		if (Moves.type(move) == Moves.PLACE)
+		{
+			setCell(Moves.to(move), EMPTY_SPHERE);
+			setNumSpheres(player, player.getNumSpheres() + 1);
 		}
+		else
+			raiseSphere(Moves.to(move), Moves.from(move));
 	}
 	
 	/**
@@ -577,32 +779,9 @@ class Board
 	public boolean checkForCompleteRow(String cell)
 	{
 		int boardIndex = getCellIndex(cell);
-		if (board[boardIndex] == EMPTY_SPHERE)
-			return false;
+		int spheres = getSpheres(getCell(boardIndex));
 		// Only care about complete rows on the first and second level
-		if (boardIndex > 24)
-			return false;
-		// First level
-		else if (boardIndex < 16)
-		{
-			int row = boardIndex / 4;
-			for (int i = 0; i < 4; i++)
-			{
-				if (board[row*4+i] != board[boardIndex])
-					return false;
-			}
-		}
-		// Second level
-		else
-		{
-			int relativeRow = (boardIndex - 16) / 3;
-			for (int i = 0; i < 3; i++)
-			{
-				if (board[16+relativeRow*3+i] != board[boardIndex])
-					return false;
-			}
-		}
-		return true;
+		return spheres != 0 && rowMasks[boardIndex] != 0 && (spheres & rowMasks[boardIndex]) == rowMasks[boardIndex];
 	}
 	
 	/**
@@ -613,32 +792,9 @@ class Board
 	public boolean checkForCompleteCol(String cell)
 	{
 		int boardIndex = getCellIndex(cell);
-		if (board[boardIndex] == EMPTY_SPHERE)
-			return false;
+		int spheres = getSpheres(getCell(boardIndex));
 		// Only care about complete columns on the first and second level
-		if (boardIndex > 24)
-			return false;
-		// First level
-		else if (boardIndex < 16)
-		{
-			int col = boardIndex % 4;
-			for (int i = 0; i < 4; i++)
-			{
-				if (board[i*4+col] != board[boardIndex])
-					return false;
-			}
-		}
-		// Second level
-		else
-		{
-			int relativeCol = (boardIndex - 16) % 3;
-			for (int i = 0; i < 3; i++)
-			{
-				if (board[16+i*3+relativeCol] != board[boardIndex])
-					return false;
-			}
-		}
-		return true;
+		return spheres != 0 && colMasks[boardIndex] != 0 && (spheres & colMasks[boardIndex]) == colMasks[boardIndex];
 	}
 	
 	/**
@@ -649,33 +805,16 @@ class Board
 	public boolean checkForCompleteSquare(String cell)
 	{
 		int boardIndex = getCellIndex(cell);
-		if (board[boardIndex] == EMPTY_SPHERE)
+		int spheres = getSpheres(getCell(boardIndex));
+		if (spheres == 0)
 			return false;
-			
-		ArrayList<Integer> squaresToCheck;
 		
-		if (boardIndex < 0 || boardIndex >= 29)
-			return false;
-		else if (boardIndex < 25)
-		{
-			squaresToCheck = checkSquares.get(boardIndex);
-			for (int i = 0; i < squaresToCheck.size()/3; i++)
-			{
-				if (board[squaresToCheck.get(i*3)] == board[boardIndex] && board[squaresToCheck.get(i*3+1)] == board[boardIndex] && board[squaresToCheck.get(i*3+2)] == board[boardIndex])
-					return true;
-			}
-			return false;
-		}
-		// Third level
-		else
+		for (int mask: squareMasks[boardIndex])
 		{
-			for (int i = 25; i < 29; i++)
-			{
-				if (board[i] != board[boardIndex])
-					return false;
-			}
+			if ((spheres & mask) == mask)
+				return true;
 		}
-		return true;
+		return false;
 	}
 	
 	/**
@@ -687,7 +826,7 @@ class Board
 	*	@return a boolean indicating whether the game is over
 	**/
 	public boolean gameOver(Player p1, Player p2) {
-		return board[29] == BLACK_SPHERE || board[29] == WHITE_SPHERE || p1.getNumSpheres() == 0 || p2.getNumSpheres() == 0;
+		return (getOccupied() & (1 << 29)) != 0 || p1.getNumSpheres() == 0 || p2.getNumSpheres() == 0;
 	}
 	
 	/**
@@ -700,8 +839,8 @@ class Board
 	**/
 	public int getWinner(Player p1, Player p2)
 	{
-		if (board[29] != EMPTY_SPHERE)
-			return board[29];
+		if (getCell(29) != EMPTY_SPHERE)
+			return getCell(29);
 		return p1.getNumSpheres() == 0 ? p2.getColour() : (p2.getNumSpheres() == 0 ? p1.getColour() : 0);
 	}
 	
@@ -712,7 +851,15 @@ class Board
 	**/
 	public int getCell(String addr) {
 		addr = addr.toLowerCase();
-		return board[getCellIndex(addr)];
+		return getCell(getCellIndex(addr));
+	}
+	
+	int getCell(int index) {
+		if ((blackSpheres & (1 << index)) != 0)
+			return BLACK_SPHERE;
+		if ((whiteSpheres & (1 << index)) != 0)
+			return WHITE_SPHERE;
+		return EMPTY_SPHERE;
 	}
 	
 	/**
@@ -726,26 +873,38 @@ class Board
 	**/
 	public void setCell(String addr, int type) {
 		addr = addr.toLowerCase();
-		board[getCellIndex(addr)] = type;
+		setCell(getCellIndex(addr), type);
+	}
+	
+	void setCell(int index, int type) {
+		int previous = getCell(index);
+		hash ^= sphereKeys[previous][index] ^ sphereKeys[type][index];
+		int level = levels[index];
+		levelCounts[previous][level]--;
+		levelCounts[type][level]++;
+		heightSums[previous] -= level + 1;
+		heightSums[type] += level + 1;
+		blackSpheres &= ~(1 << index);
+		whiteSpheres &= ~(1 << index);
+		if (type == BLACK_SPHERE)
+			blackSpheres |= 1 << index;
+		else if (type == WHITE_SPHERE)
+			whiteSpheres |= 1 << index;
 	}
 	
 
 	
 	int countSpheresOnLevel(int level, Player player)
 	{
-		int offset = 0;
-		for (int i = 0; i < level; i++)
-			offset += Math.pow(4 - i, 2);
-		int levelLength = (4 - level) * (4 - level);
-		
-		int count = 0;
-		for (int i = offset; i < offset + levelLength; i++)
-		{
-			if (board[i] == player.getColour())
-				count++;
-		}
-		
-		return count;
+		return levelCounts[player.getColour()][level];
+	}
+	
+	/**
+	*	@return the sum of the heights of the player's spheres, a sphere on level 0 having a height of 1
+	**/
+	int getHeightSum(Player player)
+	{
+		return heightSums[player.getColour()];
 	}
 	
 	/**
@@ -788,7 +947,7 @@ class Board
 	
 	private void printSquare(int index)
 	{
-		switch (board[index])
+		switch (getCell(index))
 		{
 			case BLACK_SPHERE:
 				System.out.print("B");
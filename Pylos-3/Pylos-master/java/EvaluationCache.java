@@ -0,0 +1,80 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+*	A fixed-size, direct-mapped cache of evaluation scores, so that positions met again in later iterations or
+*	through transpositions are not evaluated again. Each position has a single slot, which always takes the latest
+*	score. Like TranspositionTable, each slot is a pair of longs, the key XORed with the data and the data, so that
+*	threads can share the cache without locks: a slot half written by another thread is seen as a miss.
+**/
+class EvaluationCache
+{
+	/**
+	*	Returned by get when the cache holds no score for the key, no evaluation can give this score
+	**/
+	public static final int MISS = Integer.MIN_VALUE;
+
+	// Set in the data of every filled slot, so that an empty slot never matches a key
+	private static final long FILLED = 1L << 32;
+
+	private final long[] keys;
+	private final long[] data;
+	private final int mask;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	*	@param slots the number of scores the cache can hold, rounded down to a power of two
+	**/
+	public EvaluationCache(int slots)
+	{
+		int size = Integer.highestOneBit(Math.max(1, slots));
+		keys = new long[size];
+		data = new long[size];
+		mask = size - 1;
+	}
+
+	/**
+	*	@param key the hash of the position, combined with anything else the score depends on
+	*	@return the score stored for the key, or MISS
+	**/
+	public int get(long key)
+	{
+		int slot = (int) key & mask;
+		// Each long is read once, as another thread may be writing the slot
+		long slotData = data[slot];
+		if ((keys[slot] ^ slotData) != key || slotData == 0)
+		{
+			misses.increment();
+			return MISS;
+		}
+		hits.increment();
+		return (int) slotData;
+	}
+
+	public void put(long key, int score)
+	{
+		int slot = (int) key & mask;
+		long slotData = FILLED | (score & 0xFFFFFFFFL);
+		keys[slot] = key ^ slotData;
+		data[slot] = slotData;
+	}
+
+	public long getHits() { return hits.sum(); }
+	public long getMisses() { return misses.sum(); }
+
+	/**
+	*	@return the percentage of lookups that found their score since the last call to resetStatistics
+	**/
+	public double getHitRate()
+	{
+		long hitCount = hits.sum(), lookups = hitCount + misses.sum();
+		return lookups == 0 ? 0 : 100.0 * hitCount / lookups;
+	}
+
+	public void resetStatistics()
+	{
+		hits.reset();
+		misses.reset();
+	}
+}
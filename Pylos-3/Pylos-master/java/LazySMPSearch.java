@@ -0,0 +1,284 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+*	Minimax searched by several threads at once, each running the whole iterative deepening search on its own copy
+*	of the board. The threads only communicate through a shared transposition table, which lets them skip the parts
+*	of the tree the others have already searched. Half of the helper threads search one ply deeper than the main one,
+*	and each helper searches the root moves in a different order, so that they do not all follow the same path.
+*	The move played is the best move of the deepest iteration completed by any thread.
+**/
+class LazySMPSearch implements AIModel
+{
+	public String toString(){
+		return "Lazy SMP Minimax";
+	}
+	/**
+	*	The search deepens one ply at a time until it runs out of time or reaches this depth.
+	*	Feel free to modify this value
+	**/
+	public static final int SEARCH_DEPTH = 24;
+
+	/**
+	*	Time given to each move, in milliseconds. Feel free to modify this value
+	**/
+	public static final long TIME_BUDGET_MILLIS = 1000;
+
+	/**
+	*	Memory given to the transposition table shared by the threads. Feel free to modify this value
+	**/
+	public static final int TABLE_MEGABYTES = 32;
+
+	// Defaults to one thread per processor, the pylos.threads system property or setThreads can change it
+	private int threads = Integer.getInteger("pylos.threads", Runtime.getRuntime().availableProcessors());
+	private ExecutorService helperThreads;
+	private SearchWorker[] workers;
+
+	private long deadline;
+	private AtomicBoolean stop = new AtomicBoolean();
+
+	// Best move of the deepest iteration completed by any thread
+	private int bestMove = Moves.NO_MOVE;
+	private int bestDepth = 0;
+	private int turns = 0;
+	private long averageTime = 0;
+
+	/**
+	*	Sets the number of threads of the next searches, the calling thread included. The threads get a new
+	*	transposition table, so what the previous searches learnt is lost.
+	**/
+	public synchronized void setThreads(int count)
+	{
+		threads = count;
+		if (helperThreads != null)
+			helperThreads.shutdown();
+		helperThreads = null;
+		workers = null;
+	}
+
+	public int getThreads()
+	{
+		return threads;
+	}
+
+	private synchronized void startThreads()
+	{
+		if (workers != null)
+			return;
+		// Daemon threads, so that the game can end while they wait for a search
+		helperThreads = Executors.newFixedThreadPool(Math.max(1, threads - 1), runnable ->
+		{
+			Thread thread = new Thread(runnable, "Lazy SMP helper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		TranspositionTable table = new TranspositionTable(TABLE_MEGABYTES);
+		workers = new SearchWorker[threads];
+		workers[0] = new SearchWorker(table, SEARCH_DEPTH);
+		for (int i = 1; i < threads; i++)
+			workers[i] = new SearchWorker(table.share(), SEARCH_DEPTH);
+	}
+
+	/**
+	*	Returns the best move.
+	*	@param board the board for which to find a move
+	*	@param p1 the player that a move is being searched for
+	*	@param p2 the other player
+	*	@return a string containing what the search has deemed the best move, or an empty string if a move could not be found
+	**/
+	public String findMove(Board board, Player p1, Player p2)
+	{
+		turns++;
+		long startTime = System.nanoTime();
+		search(board, p1, p2, SEARCH_DEPTH, startTime + TIME_BUDGET_MILLIS * 1000000);
+		long finishTime = System.nanoTime();
+		averageTime = (averageTime * (turns - 1) + (finishTime - startTime)) / turns;
+
+		long nodes = 0, quiescenceNodes = 0;
+		for (SearchWorker worker : workers)
+		{
+			nodes += worker.getNodesTraversed();
+			quiescenceNodes += worker.getQuiescenceNodes();
+		}
+		System.out.println("Best move found: "+Moves.toString(bestMove));
+		System.out.println("Searched to depth " + bestDepth + " with " + threads + " threads");
+		System.out.println("Took " + ((1.0*finishTime-startTime)/1000000000.0) + " seconds");
+		System.out.println("Traversed " + nodes + " nodes and " + quiescenceNodes + " quiescence nodes");
+		System.out.println("Turns: "+turns);
+		System.out.println("Average turn time: " + (averageTime*1.0/1000000000.0) + " seconds");
+
+		return Moves.toString(bestMove);
+	}
+
+	/**
+	*	Runs the main search on the calling thread and the helpers on the others, until the main search reaches
+	*	the given depth or the deadline, then sets bestMove.
+	**/
+	private void search(Board board, Player p1, Player p2, int maxSearchDepth, long searchDeadline)
+	{
+		startThreads();
+		deadline = searchDeadline;
+		stop = new AtomicBoolean();
+		for (SearchWorker worker : workers)
+			worker.newSearch(deadline, stop);
+		bestMove = Moves.NO_MOVE;
+		bestDepth = 0;
+
+		List<Future<?>> helpers = new ArrayList<>();
+		for (int i = 1; i < threads; i++)
+		{
+			int id = i;
+			helpers.add(helperThreads.submit(() -> iterate(id, new Board(board), new Player(p1), new Player(p2), maxSearchDepth)));
+		}
+		iterate(0, new Board(board), new Player(p1), new Player(p2), maxSearchDepth);
+		// The helpers only stop when the main search does
+		stop.set(true);
+		for (Future<?> helper : helpers)
+		{
+			try
+			{
+				helper.get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException e)
+			{
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+
+		// If not even the first iteration completed, any legal move is better than nothing
+		if (bestMove == Moves.NO_MOVE)
+		{
+			MoveList moves = new MoveList();
+			board.generateMoves(p1, moves);
+			if (moves.size() > 0)
+				bestMove = moves.get(0);
+		}
+	}
+
+	/**
+	*	The iterative deepening search of one thread, thread 0 being the main one.
+	**/
+	private void iterate(int id, Board board, Player p1, Player p2, int maxSearchDepth)
+	{
+		SearchWorker worker = workers[id];
+		MoveList moves = new MoveList();
+		board.generateMoves(p1, moves);
+		if (moves.size() == 0)
+			return;
+		// Each helper searches the moves after the first one from a different offset, the best move of its
+		// previous iteration coming first
+		int others = moves.size() - 1;
+		int offset = others > 0 ? id % others : 0;
+		int threadBestMove = Moves.NO_MOVE;
+		long startTime = System.nanoTime();
+		for (int depth = 1; depth <= maxSearchDepth && !stop.get(); depth++)
+		{
+			int maxDepth = Math.min(maxSearchDepth, depth + (id % 2));
+			// Back to the order of generation, which the previous iteration changed
+			board.generateMoves(p1, moves);
+			moves.setScore(0, moves.size());
+			for (int i = 1; i < moves.size(); i++)
+				moves.setScore(i, others - (i - 1 + others - offset) % others);
+			for (int i = 0; i < moves.size(); i++)
+				if (moves.get(i) == threadBestMove)
+					moves.setScore(i, moves.size() + 1);
+			for (int i = 0; i < moves.size(); i++)
+				moves.selectBest(i);
+
+			boolean black = p1.getColour() == Board.BLACK_SPHERE;
+			int alpha = Integer.MIN_VALUE, beta = Integer.MAX_VALUE;
+			int bestScore = black ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+			int iterationBestMove = Moves.NO_MOVE;
+			for (int i = 0; i < moves.size(); i++)
+			{
+				int move = moves.get(i);
+				board.move(move, p1);
+				int score = worker.search(board, p2, p1, 1, maxDepth, alpha, beta);
+				board.undoMove(move, p1);
+				if (worker.isStopped())
+					return;
+				if (black ? score > bestScore : score < bestScore)
+				{
+					bestScore = score;
+					iterationBestMove = move;
+				}
+				if (black)
+					alpha = Math.max(alpha, bestScore);
+				else
+					beta = Math.min(beta, bestScore);
+			}
+			threadBestMove = iterationBestMove;
+			recordIteration(id, maxDepth, iterationBestMove);
+
+			if (id == 0 && (bestScore == Integer.MAX_VALUE - 1 || bestScore == Integer.MIN_VALUE + 1
+				|| System.nanoTime() - startTime > (deadline - startTime) / 3))
+				return;
+		}
+	}
+
+	private synchronized void recordIteration(int id, int depth, int move)
+	{
+		// The main thread wins ties, as it searched with the usual move order
+		if (depth > bestDepth || depth == bestDepth && id == 0)
+		{
+			bestDepth = depth;
+			bestMove = move;
+		}
+	}
+
+	/**
+	*	Reports the nodes searched per second for each number of threads, from 1 up to the number of processors
+	*	or the first argument, with the time of each search in milliseconds given by the second argument.
+	*	Usage: java LazySMPSearch [maxThreads] [millis]
+	**/
+	public static void main(String[] args)
+	{
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		long millis = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+
+		// The first run only warms up the JIT compiler, so that one thread is not timed on interpreted code
+		LazySMPSearch search = new LazySMPSearch();
+		search.timeSearch(1, millis);
+		double singleThreadRate = 0;
+		for (int count = 1; count <= maxThreads; count *= 2)
+		{
+			long[] result = search.timeSearch(count, millis);
+			double rate = result[1] * 1e9 / result[0];
+			if (count == 1)
+				singleThreadRate = rate;
+			System.out.printf("%d threads: %.0f nodes/second, depth %d, scaling %.2f%n",
+				count, rate, search.bestDepth, rate / singleThreadRate);
+		}
+	}
+
+	/**
+	*	Searches an opening position for the given time with new threads.
+	*	@return the time taken in nanoseconds and the number of nodes traversed
+	**/
+	private long[] timeSearch(int count, long millis)
+	{
+		Board board = new Board();
+		Player white = new Player(Player.HUMAN, Board.WHITE_SPHERE), black = new Player(Player.HUMAN, Board.BLACK_SPHERE);
+		String[] opening = {"place a1", "place b2", "place d4", "place c3", "place a4", "place b3"};
+		for (int i = 0; i < opening.length; i++)
+			board.move(opening[i], i % 2 == 0 ? white : black);
+
+		setThreads(count);
+		long startTime = System.nanoTime();
+		search(board, white, black, SEARCH_DEPTH, startTime + millis * 1000000);
+		long time = System.nanoTime() - startTime;
+		long nodes = 0;
+		for (SearchWorker worker : workers)
+			nodes += worker.getNodesTraversed() + worker.getQuiescenceNodes();
+		return new long[] {time, nodes};
+	}
+}
@@ -3,38 +3,63 @@
 *	@version 1.0
 **/
 
-import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-class Minimax // implements AIModel
+class Minimax implements AIModel
 {
 	public String toString(){
 		return "MiniMax";
 	}
 	/**
+	*	The search deepens one ply at a time until it runs out of time or reaches this depth.
 	*	Feel free to modify this value
 	**/
-	public static final int SEARCH_DEPTH = 5;
+	public static final int SEARCH_DEPTH = 24;
 	
-	private static String bestMove = "";
+	/**
+	*	Time given to each move, in milliseconds. Feel free to modify this value
+	**/
+	public static final long TIME_BUDGET_MILLIS = 1000;
 	
-	private static int nodesTraversed = 0;
-	private static int stringsTraversed = 0;
-	private static int turns = 0;
+	private int bestMove = Moves.NO_MOVE;
 	
-	private static long averageTime = 0;
+	private int turns = 0;
 	
-	private static String[] cells = {
-		"a1", "a2", "a3", "a4",
-		"b1", "b2", "b3", "b4",
-		"c1", "c2", "c3", "c4",
-		"d1", "d2", "d3", "d4",
-		"e1", "e2", "e3",
-		"f1", "f2", "f3",
-		"g1", "g2", "g3",
-		"h1", "h2",
-		"i1", "i2",
-		"j1"
-	};
+	private long averageTime = 0;
+	
+	/**
+	*	Memory given to the transposition table, feel free to modify this value
+	**/
+	public static final int TABLE_MEGABYTES = 32;
+	
+	// The search itself, shared with the parallel searches. It keeps its transposition table, killer moves and
+	// history from one turn to the next
+	private final SearchWorker worker;
+	
+	private final long timeBudgetMillis;
+	
+	public Minimax()
+	{
+		this(TIME_BUDGET_MILLIS);
+	}
+	
+	/**
+	*	@param timeBudgetMillis the time given to each move, in milliseconds
+	**/
+	protected Minimax(long timeBudgetMillis)
+	{
+		this(timeBudgetMillis, false);
+	}
+	
+	/**
+	*	@param timeBudgetMillis the time given to each move, in milliseconds
+	*	@param principalVariation true to search with null windows all the moves but the first (see SearchWorker)
+	**/
+	protected Minimax(long timeBudgetMillis, boolean principalVariation)
+	{
+		this.timeBudgetMillis = timeBudgetMillis;
+		worker = new SearchWorker(TABLE_MEGABYTES, SEARCH_DEPTH, principalVariation);
+	}
 	
 	/**
 	*	Returns the best move.
@@ -43,173 +68,73 @@ class Minimax // implements AIModel
 	*	@param p2 the other player
 	*	@return a string containing what minimax has deemed the best move, or an empty string if a move could not be found
 	**/
-	public static String findMove(Board board, Player p1, Player p2)
+	public String findMove(Board board, Player p1, Player p2)
 	{
-		bestMove = "";
-		nodesTraversed = 0;
-		stringsTraversed = 0;
-		
 		turns++;
 		
 		long startTime = System.nanoTime();
-		//minimax(board, p1, p2, 0, SEARCH_DEPTH);
-		minimax(board, p1, p2, 0, SEARCH_DEPTH, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		long deadline = startTime + timeBudgetMillis * 1000000;
+		AtomicBoolean stop = new AtomicBoolean();
+		worker.newSearch(deadline, stop);
+		
+		// Each iteration searches the best move of the previous one first, and is abandoned if the time runs out.
+		// The move returned is the one of the deepest iteration that completed
+		int completedMove = Moves.NO_MOVE;
+		int completedDepth = 0;
+		int score = 0;
+		for (int maxDepth = 1; maxDepth <= SEARCH_DEPTH; maxDepth++)
+		{
+			score = searchIteration(board, p1, p2, maxDepth, score);
+			if (stop.get())
+				break;
+			completedMove = worker.getBestMove();
+			completedDepth = maxDepth;
+			// Deeper searches can't change a won or lost game, and the next iteration takes several times
+			// as long as this one, so don't start it if it has little chance to complete
+			if (score == Integer.MAX_VALUE - 1 || score == Integer.MIN_VALUE + 1
+				|| System.nanoTime() - startTime > (deadline - startTime) / 3)
+				break;
+		}
+		// If not even the first iteration completed, the best move it found so far is better than nothing
+		if (completedMove == Moves.NO_MOVE)
+			completedMove = worker.getBestMove();
+		bestMove = completedMove;
+		
 		long finishTime = System.nanoTime();
 		averageTime = (averageTime * (turns - 1) + (finishTime - startTime)) / turns;
 		
-		System.out.println("Best move found: "+bestMove);
+		long cutoffs = worker.getCutoffs();
+		TranspositionTable table = worker.getTable();
+		Tablebase tablebase = worker.getTablebase();
+		System.out.println("Best move found: "+Moves.toString(bestMove));
+		System.out.println("Searched to depth " + completedDepth);
 		System.out.println("Took " + ((1.0*finishTime-startTime)/1000000000.0) + " seconds");
-		System.out.println("Traversed " + nodesTraversed + " nodes");
-		System.out.println("Enumerated through " + stringsTraversed + " strings");
+		System.out.println("Traversed " + worker.getNodesTraversed() + " nodes");
+		System.out.println("Generated " + worker.getMovesGenerated() + " moves");
+		System.out.println("Traversed " + worker.getQuiescenceNodes() + " quiescence nodes");
+		System.out.printf("First move cutoffs: %.1f%% of %d cutoffs%n", cutoffs == 0 ? 0 : 100.0 * worker.getFirstMoveCutoffs() / cutoffs, cutoffs);
+		System.out.printf("Transposition table: %d probes, %.1f%% hits, %d stores%n", table.getProbes(), table.getHitRate(), table.getStores());
+		System.out.printf("Evaluation cache: %d hits, %d misses since the start%n", ScoringEval.cache.getHits(), ScoringEval.cache.getMisses());
+		if (tablebase != null)
+			System.out.printf("Tablebase: %d probes, %d hits since the start%n", tablebase.getProbes(), tablebase.getHits());
 		System.out.println("Turns: "+turns);
 		System.out.println("Average turn time: " + (averageTime*1.0/1000000000.0) + " seconds");
 		
-		return bestMove;
+		return Moves.toString(bestMove);
 	}
 	
-	private static int minimax(Board board, Player p1, Player p2, int depth, int maxDepth, int alpha, int beta)
+	/**
+	*	Searches the root to the given depth, with the full window.
+	*	@param previousScore the score of the previous iteration, 0 for the first one
+	*	@return the score of the root, meaningless if the search was stopped
+	**/
+	protected int searchIteration(Board board, Player p1, Player p2, int maxDepth, int previousScore)
 	{
-		// Base cases - leaf nodes (either terminal, or have reached max depth)
-		if (board.gameOver(p1, p2))
-			return board.getWinner(p1, p2) == Board.BLACK_SPHERE ? Integer.MAX_VALUE - 1 : Integer.MIN_VALUE + 1;
-		else if (depth == maxDepth)
-			return board.evaluateBoard(p1, p2);
-			
-		int bestMoveScore = p1.getColour() == Board.BLACK_SPHERE ? Integer.MIN_VALUE : Integer.MAX_VALUE;
-		
-		moveEnumeration: for (String cell: cells)
-		{
-			// All placing combinations
-			String move = "place " + cell;
-			bestMoveScore = getBestScore(board, move, p1, p2, bestMoveScore, depth, maxDepth, alpha, beta);
-			
-			// alpha is MAX's lower bound, beta is MIN's upper bound
-			if (p1.getColour() == Board.BLACK_SPHERE)
-				alpha = bestMoveScore;
-			else
-				beta = bestMoveScore;
-			// Cutoff
-			if (alpha >= beta)
-					break moveEnumeration;
-			
-			// Only consider removals if the place move is valid and leads to the completion of a row, column or square
-			if (board.canPlaceSphere(cell, p1) && board.placeMoveCompletes(cell, p1))
-			{
-				for (String firstRemove: cells)
-				{
-					move = "place " + cell + " r:" + firstRemove;
-					bestMoveScore = getBestScore(board, move, p1, p2, bestMoveScore, depth, maxDepth, alpha, beta);
-					
-					// alpha is MAX's lower bound, beta is MIN's upper bound
-					if (p1.getColour() == Board.BLACK_SPHERE)
-						alpha = bestMoveScore;
-					else
-						beta = bestMoveScore;
-					// Cutoff
-					if (alpha >= beta)
-							break moveEnumeration;
-					
-					// Only try removing 2 if we can remove the 1st
-					if (board.isValidMove(move, p1))
-					{
-						for (String secondRemove: cells)
-						{
-							bestMoveScore = getBestScore(board, "place " + cell + " r:" + firstRemove + ":" + secondRemove, p1, p2, bestMoveScore, depth, maxDepth, alpha, beta);
-							
-							// alpha is MAX's lower bound, beta is MIN's upper bound
-							if (p1.getColour() == Board.BLACK_SPHERE)
-								alpha = bestMoveScore;
-							else
-								beta = bestMoveScore;
-							// Cutoff
-							if (alpha >= beta)
-									break moveEnumeration;
-						}
-					}
-				}
-			}
-			
-			// Only consider raises if cell contains a sphere of the player's colour
-			if (board.getCell(cell) == p1.getColour())
-			{
-				// All raising combinations
-				for (String toCell: cells)
-				{
-					move = "raise " + cell + " " + toCell;
-					bestMoveScore = getBestScore(board, move, p1, p2, bestMoveScore, depth, maxDepth, alpha, beta);
-					
-					// alpha is MAX's lower bound, beta is MIN's upper bound
-					if (p1.getColour() == Board.BLACK_SPHERE)
-						alpha = bestMoveScore;
-					else
-						beta = bestMoveScore;
-					// Cutoff
-					if (alpha >= beta)
-							break moveEnumeration;
-					
-					// Only consider removals if the raise move is valid and leads to the completion of a row, column or square
-					if (board.canRaiseSphere(cell, toCell, p1) && board.raiseMoveCompletes(cell, toCell, p1))
-					{
-						for (String firstRemove: cells)
-						{
-							move = "raise " + cell + " " + toCell + " r:" + firstRemove;
-							bestMoveScore = getBestScore(board, "raise " + cell + " " + toCell + " r:" + firstRemove, p1, p2, bestMoveScore, depth, maxDepth, alpha, beta);
-							
-							// alpha is MAX's lower bound, beta is MIN's upper bound
-							if (p1.getColour() == Board.BLACK_SPHERE)
-								alpha = bestMoveScore;
-							else
-								beta = bestMoveScore;
-							// Cutoff
-							if (alpha >= beta)
-									break moveEnumeration;
-							
-							// Only try removing 2 if we can remove the 1st
-							if (board.isValidMove(move, p1))
-							{
-								for (String secondRemove: cells)
-								{
-									bestMoveScore = getBestScore(board, "raise " + cell + " " + toCell + " r:" + firstRemove + ":" + secondRemove, p1, p2, bestMoveScore, depth, maxDepth, alpha, beta);
-									
-									// alpha is MAX's lower bound, beta is MIN's upper bound
-									if (p1.getColour() == Board.BLACK_SPHERE)
-										alpha = bestMoveScore;
-									else
-										beta = bestMoveScore;
-									// Cutoff
-									if (alpha >= beta)
-											break moveEnumeration;
-								}
-							}
-						}
-					}
-				}
-			}
-		}
-		
-		return bestMoveScore;
+		return worker.search(board, p1, p2, 0, maxDepth, Integer.MIN_VALUE, Integer.MAX_VALUE);
 	}
 	
-	private static int getBestScore(Board board, String move, Player p1, Player p2, int bestScore, int depth, int maxDepth, int alpha, int beta)
+	protected SearchWorker getWorker()
 	{
-		stringsTraversed++;
-		if (board.isValidMove(move, p1))
-		{
-			nodesTraversed++;
-			board.move(move, p1);
-			int moveScore = minimax(board, p2, p1, depth + 1, maxDepth, alpha, beta);
-			board.undoMove(move, p1);
-			
-			// If the move is better for this player than previously seen, set it's score to be the new best,
-			// and the static bestMove variable to be the move
-			if (p1.getColour() == Board.BLACK_SPHERE && moveScore > bestScore ||
-				p1.getColour() == Board.WHITE_SPHERE && moveScore < bestScore)
-			{
-				bestScore = moveScore;
-				if (depth == 0)
-					bestMove = move;
-			}
-		}
-		return bestScore;
+		return worker;
 	}
 }
\ No newline at end of file
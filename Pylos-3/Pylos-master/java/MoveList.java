@@ -0,0 +1,64 @@
+import java.util.Arrays;
+
+/**
+*	A reusable buffer of packed moves. Move generation fills it in place, so once the buffer has grown
+*	to fit the largest position seen, generating moves no longer allocates anything.
+**/
+class MoveList
+{
+	private int[] moves = new int[256];
+	// Ordering scores of the moves, set by the search
+	private int[] scores = new int[256];
+	private int size = 0;
+	
+	public void clear()
+	{
+		size = 0;
+	}
+	
+	public void add(int move)
+	{
+		if (size == moves.length)
+		{
+			moves = Arrays.copyOf(moves, size * 2);
+			scores = Arrays.copyOf(scores, size * 2);
+		}
+		moves[size++] = move;
+	}
+	
+	public void setScore(int index, int score)
+	{
+		scores[index] = score;
+	}
+	
+	/**
+	*	Moves the move with the highest score among the ones from the given index to the end of the list
+	*	to that index, shifting the ones in between. Calling it for each index in turn visits the moves by decreasing score, without sorting
+	*	moves that a cutoff makes useless. Moves with the same score keep their order.
+	*	@return the move now at the given index
+	**/
+	public int selectBest(int index)
+	{
+		int best = index;
+		for (int i = index + 1; i < size; i++)
+			if (scores[i] > scores[best])
+				best = i;
+		int move = moves[best];
+		int score = scores[best];
+		System.arraycopy(moves, index, moves, index + 1, best - index);
+		System.arraycopy(scores, index, scores, index + 1, best - index);
+		moves[index] = move;
+		scores[index] = score;
+		return move;
+	}
+	
+	public int get(int index)
+	{
+		return moves[index];
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+}
@@ -0,0 +1,142 @@
+/**
+*	Packs a Pylos move into a single int, so that the search never has to build or parse strings.
+*	From the least significant bit, a move holds its type (2 bits), the destination cell, the raised cell,
+*	then the first and second removals (5 bits each). Cells are board indices, or NONE when unused.
+*	The string form ("place a1 r:b2:c3", "raise a1 e2") is only meant for console input and output.
+**/
+final class Moves
+{
+	public static final int PLACE = 1;
+	public static final int RAISE = 2;
+	public static final int NONE = 31;
+
+	/**
+	*	Not a move, returned when no move could be found or parsed
+	**/
+	public static final int NO_MOVE = 0;
+
+	private static final int TO_SHIFT = 2;
+	private static final int FROM_SHIFT = 7;
+	private static final int FIRST_REMOVAL_SHIFT = 12;
+	private static final int SECOND_REMOVAL_SHIFT = 17;
+	private static final int CELL_MASK = 0x1F;
+
+	private Moves()
+	{
+	}
+
+	public static int place(int to)
+	{
+		return place(to, NONE, NONE);
+	}
+
+	public static int place(int to, int firstRemoval, int secondRemoval)
+	{
+		return encode(PLACE, NONE, to, firstRemoval, secondRemoval);
+	}
+
+	public static int raise(int from, int to)
+	{
+		return raise(from, to, NONE, NONE);
+	}
+
+	public static int raise(int from, int to, int firstRemoval, int secondRemoval)
+	{
+		return encode(RAISE, from, to, firstRemoval, secondRemoval);
+	}
+
+	private static int encode(int type, int from, int to, int firstRemoval, int secondRemoval)
+	{
+		return type | to << TO_SHIFT | from << FROM_SHIFT | firstRemoval << FIRST_REMOVAL_SHIFT | secondRemoval << SECOND_REMOVAL_SHIFT;
+	}
+
+	/**
+	*	@return the move with its removals replaced by the given ones
+	**/
+	public static int withRemovals(int move, int firstRemoval, int secondRemoval)
+	{
+		return encode(type(move), from(move), to(move), firstRemoval, secondRemoval);
+	}
+
+	public static int type(int move) { return move & 3; }
+	public static int to(int move) { return move >>> TO_SHIFT & CELL_MASK; }
+	public static int from(int move) { return move >>> FROM_SHIFT & CELL_MASK; }
+	public static int firstRemoval(int move) { return move >>> FIRST_REMOVAL_SHIFT & CELL_MASK; }
+	public static int secondRemoval(int move) { return move >>> SECOND_REMOVAL_SHIFT & CELL_MASK; }
+
+	public static int removalCount(int move)
+	{
+		return (firstRemoval(move) != NONE ? 1 : 0) + (secondRemoval(move) != NONE ? 1 : 0);
+	}
+
+	/**
+	*	@return the console syntax of the move, "place <cell> [r:<cell>[:<cell>]]" or "raise <cell> <cell> [r:<cell>[:<cell>]]"
+	**/
+	public static String toString(int move)
+	{
+		if (move == NO_MOVE)
+			return "";
+
+		StringBuilder builder = new StringBuilder();
+		if (type(move) == PLACE)
+			builder.append("place ").append(Board.getCellAddress(to(move)));
+		else
+			builder.append("raise ").append(Board.getCellAddress(from(move))).append(' ').append(Board.getCellAddress(to(move)));
+
+		if (firstRemoval(move) != NONE)
+		{
+			builder.append(" r:").append(Board.getCellAddress(firstRemoval(move)));
+			if (secondRemoval(move) != NONE)
+				builder.append(':').append(Board.getCellAddress(secondRemoval(move)));
+		}
+		return builder.toString();
+	}
+
+	/**
+	*	Parses the console syntax of a move. Only the syntax is checked, not whether the move is legal.
+	*	@param move a string containing a move
+	*	@return the packed move, or NO_MOVE if the string isn't a well formed move
+	**/
+	public static int parse(String move)
+	{
+		if (move == null)
+			return NO_MOVE;
+
+		String[] components = move.split(" ");
+		int removalComponent;
+		int type, from = NONE, to;
+		if (components[0].equals("place") && components.length >= 2 && components.length <= 3)
+		{
+			type = PLACE;
+			to = Board.getCellIndexOrNone(components[1]);
+			removalComponent = 2;
+		}
+		else if (components[0].equals("raise") && components.length >= 3 && components.length <= 4)
+		{
+			type = RAISE;
+			from = Board.getCellIndexOrNone(components[1]);
+			to = Board.getCellIndexOrNone(components[2]);
+			if (from == NONE)
+				return NO_MOVE;
+			removalComponent = 3;
+		}
+		else
+			return NO_MOVE;
+
+		if (to == NONE)
+			return NO_MOVE;
+		if (components.length == removalComponent)
+			return encode(type, from, to, NONE, NONE);
+
+		String[] removals = components[removalComponent].split(":");
+		if ((removals.length != 2 && removals.length != 3) || !removals[0].equals("r"))
+			return NO_MOVE;
+
+		int firstRemoval = Board.getCellIndexOrNone(removals[1]);
+		int secondRemoval = removals.length == 3 ? Board.getCellIndexOrNone(removals[2]) : NONE;
+		if (firstRemoval == NONE || (removals.length == 3 && secondRemoval == NONE))
+			return NO_MOVE;
+
+		return encode(type, from, to, firstRemoval, secondRemoval);
+	}
+}
@@ -0,0 +1,52 @@
+/**
+*	Principal variation search: the search of Minimax, in which only the first move of each node is searched with
+*	the full window (see SearchWorker). Each iteration starts with an aspiration window around the score of the
+*	previous one, widened when the score falls outside of it.
+**/
+class PVSearch extends Minimax
+{
+	public String toString(){
+		return "Principal Variation Search";
+	}
+	/**
+	*	Half the width of the aspiration windows. Feel free to modify this value
+	**/
+	public static final int ASPIRATION_WINDOW = 4;
+	
+	private int researches = 0;
+	
+	public PVSearch()
+	{
+		super(TIME_BUDGET_MILLIS, true);
+	}
+	
+	public String findMove(Board board, Player p1, Player p2)
+	{
+		researches = 0;
+		String move = super.findMove(board, p1, p2);
+		System.out.println("Aspiration window failures: " + researches);
+		return move;
+	}
+	
+	protected int searchIteration(Board board, Player p1, Player p2, int maxDepth, int previousScore)
+	{
+		if (maxDepth == 1)
+			return super.searchIteration(board, p1, p2, maxDepth, previousScore);
+		
+		SearchWorker worker = getWorker();
+		int alpha = (int) Math.max(Integer.MIN_VALUE, (long) previousScore - ASPIRATION_WINDOW);
+		int beta = (int) Math.min(Integer.MAX_VALUE, (long) previousScore + ASPIRATION_WINDOW);
+		int score = worker.search(board, p1, p2, 0, maxDepth, alpha, beta);
+		// The score is only a bound when it falls outside of the window, open the window on that side
+		while (!worker.isStopped() && (score <= alpha && alpha != Integer.MIN_VALUE || score >= beta && beta != Integer.MAX_VALUE))
+		{
+			researches++;
+			if (score <= alpha)
+				alpha = Integer.MIN_VALUE;
+			else
+				beta = Integer.MAX_VALUE;
+			score = worker.search(board, p1, p2, 0, maxDepth, alpha, beta);
+		}
+		return score;
+	}
+}
@@ -0,0 +1,308 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+*	Minimax with the root moves split across the threads of a ForkJoinPool. The first root move is searched alone,
+*	as it is usually the best one and gives the bound the others are searched with; the other moves are then searched
+*	in parallel, each on its own copy of the board and players, by the SearchWorker of the thread running it.
+*	The best score found at the root is shared through an atomic, so that each move is searched with the best bound
+*	known when it starts.
+**/
+class ParallelSearch implements AIModel
+{
+	public String toString(){
+		return "Parallel Minimax";
+	}
+	/**
+	*	The search deepens one ply at a time until it runs out of time or reaches this depth.
+	*	Feel free to modify this value
+	**/
+	public static final int SEARCH_DEPTH = 24;
+
+	/**
+	*	Time given to each move, in milliseconds. Feel free to modify this value
+	**/
+	public static final long TIME_BUDGET_MILLIS = 1000;
+
+	/**
+	*	Memory given to the transposition table of each thread. Feel free to modify this value
+	**/
+	public static final int TABLE_MEGABYTES = 16;
+
+	// Defaults to one thread per processor, the pylos.threads system property or setThreads can change it
+	private int threads = Integer.getInteger("pylos.threads", Runtime.getRuntime().availableProcessors());
+	private ForkJoinPool pool;
+	private final List<SearchWorker> workers = new ArrayList<>();
+	private ThreadLocal<SearchWorker> threadWorker;
+
+	// Deadline and stop flag of the current search, given to the workers created during it
+	private long deadline;
+	private AtomicBoolean stop = new AtomicBoolean();
+
+	private int bestMove = Moves.NO_MOVE;
+	private int turns = 0;
+	private long averageTime = 0;
+
+	/**
+	*	Sets the number of threads of the next searches. Each thread gets a new worker, so what the previous
+	*	workers learnt is lost.
+	**/
+	public synchronized void setThreads(int count)
+	{
+		threads = count;
+		if (pool != null)
+			pool.shutdown();
+		pool = null;
+	}
+
+	public int getThreads()
+	{
+		return threads;
+	}
+
+	private synchronized void startPool()
+	{
+		if (pool != null)
+			return;
+		pool = new ForkJoinPool(threads);
+		synchronized (workers)
+		{
+			workers.clear();
+		}
+		threadWorker = ThreadLocal.withInitial(() ->
+		{
+			SearchWorker worker = new SearchWorker(TABLE_MEGABYTES, SEARCH_DEPTH);
+			worker.newSearch(deadline, stop);
+			synchronized (workers)
+			{
+				workers.add(worker);
+			}
+			return worker;
+		});
+	}
+
+	/**
+	*	Returns the best move.
+	*	@param board the board for which to find a move
+	*	@param p1 the player that a move is being searched for
+	*	@param p2 the other player
+	*	@return a string containing what the search has deemed the best move, or an empty string if a move could not be found
+	**/
+	public String findMove(Board board, Player p1, Player p2)
+	{
+		turns++;
+		long startTime = System.nanoTime();
+		int completedDepth = search(board, p1, p2, SEARCH_DEPTH, startTime + TIME_BUDGET_MILLIS * 1000000);
+		long finishTime = System.nanoTime();
+		averageTime = (averageTime * (turns - 1) + (finishTime - startTime)) / turns;
+
+		long nodes = 0, quiescenceNodes = 0;
+		synchronized (workers)
+		{
+			for (SearchWorker worker : workers)
+			{
+				nodes += worker.getNodesTraversed();
+				quiescenceNodes += worker.getQuiescenceNodes();
+			}
+		}
+		System.out.println("Best move found: "+Moves.toString(bestMove));
+		System.out.println("Searched to depth " + completedDepth + " with " + threads + " threads");
+		System.out.println("Took " + ((1.0*finishTime-startTime)/1000000000.0) + " seconds");
+		System.out.println("Traversed " + nodes + " nodes and " + quiescenceNodes + " quiescence nodes");
+		System.out.println("Turns: "+turns);
+		System.out.println("Average turn time: " + (averageTime*1.0/1000000000.0) + " seconds");
+
+		return Moves.toString(bestMove);
+	}
+
+	/**
+	*	Searches by iterative deepening until the given depth or deadline, and sets bestMove to the best move of
+	*	the deepest iteration that completed.
+	*	@return the depth of that iteration
+	**/
+	private int search(Board board, Player p1, Player p2, int maxSearchDepth, long searchDeadline)
+	{
+		startPool();
+		deadline = searchDeadline;
+		stop = new AtomicBoolean();
+		synchronized (workers)
+		{
+			for (SearchWorker worker : workers)
+				worker.newSearch(deadline, stop);
+		}
+
+		MoveList moves = new MoveList();
+		board.generateMoves(p1, moves);
+		bestMove = Moves.NO_MOVE;
+		int completedMove = Moves.NO_MOVE;
+		int completedDepth = 0;
+		long startTime = System.nanoTime();
+		for (int maxDepth = 1; maxDepth <= maxSearchDepth && moves.size() > 0; maxDepth++)
+		{
+			long best = searchRoot(board, p1, p2, moves, maxDepth);
+			if (stop.get())
+				break;
+			completedMove = bestMove = (int) best;
+			completedDepth = maxDepth;
+			int score = (int) (best >> 32);
+			if (score == Integer.MAX_VALUE - 1 || score == Integer.MIN_VALUE + 1
+				|| System.nanoTime() - startTime > (deadline - startTime) / 3)
+				break;
+		}
+		// If not even the first iteration completed, any legal move is better than nothing
+		if (completedMove == Moves.NO_MOVE && moves.size() > 0)
+			completedMove = moves.get(0);
+		bestMove = completedMove;
+		return completedDepth;
+	}
+
+	/**
+	*	Searches the root moves to the given depth, the best move of the previous iteration first.
+	*	@return the best score in the high 32 bits and the best move in the low ones
+	**/
+	private long searchRoot(Board board, Player p1, Player p2, MoveList moves, int maxDepth)
+	{
+		for (int i = 0; i < moves.size(); i++)
+			moves.setScore(i, moves.get(i) == bestMove ? 1 : 0);
+		moves.selectBest(0);
+
+		boolean black = p1.getColour() == Board.BLACK_SPHERE;
+		AtomicLong best = new AtomicLong(pack(black ? Integer.MIN_VALUE : Integer.MAX_VALUE, Moves.NO_MOVE));
+		pool.invoke(new RootMoveSearch(board, p1, p2, moves.get(0), maxDepth, best));
+		if (stop.get())
+			return best.get();
+
+		List<RootMoveSearch> others = new ArrayList<>();
+		for (int i = 1; i < moves.size(); i++)
+			others.add(new RootMoveSearch(board, p1, p2, moves.get(i), maxDepth, best));
+		pool.invoke(new RecursiveAction()
+		{
+			protected void compute()
+			{
+				invokeAll(others);
+			}
+		});
+		return best.get();
+	}
+
+	private static long pack(int score, int move)
+	{
+		return (long) score << 32 | (move & 0xFFFFFFFFL);
+	}
+
+	/**
+	*	The search of one root move, on copies of the board and players.
+	**/
+	private class RootMoveSearch extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Board board;
+		private final Player p1, p2;
+		private final int move;
+		private final int maxDepth;
+		private final AtomicLong best;
+
+		RootMoveSearch(Board board, Player p1, Player p2, int move, int maxDepth, AtomicLong best)
+		{
+			this.board = board;
+			this.p1 = p1;
+			this.p2 = p2;
+			this.move = move;
+			this.maxDepth = maxDepth;
+			this.best = best;
+		}
+
+		protected void compute()
+		{
+			if (stop.get())
+				return;
+			Board copy = new Board(board);
+			Player mover = new Player(p1), other = new Player(p2);
+			copy.move(move, mover);
+
+			boolean black = mover.getColour() == Board.BLACK_SPHERE;
+			int bound = (int) (best.get() >> 32);
+			SearchWorker worker = threadWorker.get();
+			int score = worker.search(copy, other, mover, 1, maxDepth,
+				black ? bound : Integer.MIN_VALUE, black ? Integer.MAX_VALUE : bound);
+			if (worker.isStopped())
+				return;
+
+			// A score no better than the bound is only an upper bound for black, a lower bound for white
+			long current;
+			do
+			{
+				current = best.get();
+				int bestScore = (int) (current >> 32);
+				if (black ? score <= bestScore : score >= bestScore)
+					return;
+			}
+			while (!best.compareAndSet(current, pack(score, move)));
+		}
+	}
+
+	/**
+	*	Reports the speedup of the search to a fixed depth for each number of threads, from 1 up to the
+	*	number of processors or the first argument, with the depth given by the second argument.
+	*	Usage: java ParallelSearch [maxThreads] [depth]
+	**/
+	public static void main(String[] args)
+	{
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int depth = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+
+		// The first run only warms up the JIT compiler, so that one thread is not timed on interpreted code
+		ParallelSearch search = new ParallelSearch();
+		search.timeSearches(1, depth);
+		long singleThreadTime = 0;
+		for (int count = 1; count <= maxThreads; count *= 2)
+		{
+			long[] result = search.timeSearches(count, depth);
+			if (count == 1)
+				singleThreadTime = result[0];
+			System.out.printf("%d threads: %.3f seconds, %d nodes, speedup %.2f%n",
+				count, result[0] / 1e9, result[1], (double) singleThreadTime / result[0]);
+		}
+	}
+
+	/**
+	*	Searches a few opening positions to the given depth with new workers.
+	*	@return the time taken in nanoseconds and the number of nodes traversed
+	**/
+	private long[] timeSearches(int count, int depth)
+	{
+		String[][] openings = {
+			{"place a1", "place b2", "place d4", "place c3", "place a4", "place b3"},
+			{"place b2", "place c3", "place b3", "place c2", "place a1", "place d4", "place a2", "place d3"},
+			{"place a1", "place a2", "place a3", "place a4", "place b1", "place b2", "place b3", "place b4", "place c1", "place c2"}
+		};
+
+		setThreads(count);
+		long time = 0, nodes = 0;
+		for (String[] opening : openings)
+		{
+			Board board = new Board();
+			Player white = new Player(Player.HUMAN, Board.WHITE_SPHERE), black = new Player(Player.HUMAN, Board.BLACK_SPHERE);
+			Player turn = white;
+			for (String move : opening)
+			{
+				board.move(move, turn);
+				turn = turn == white ? black : white;
+			}
+			long startTime = System.nanoTime();
+			search(board, turn, turn == white ? black : white, depth, Long.MAX_VALUE);
+			time += System.nanoTime() - startTime;
+			synchronized (workers)
+			{
+				for (SearchWorker worker : workers)
+					nodes += worker.getNodesTraversed();
+			}
+		}
+		return new long[] {time, nodes};
+	}
+}
@@ -11,8 +11,6 @@
 
 // Output score and current game status to file!!!
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.*;
 
 class Player
@@ -23,23 +21,12 @@ class Player
 	private int playerType;
 	private int numSpheres;
 	private int colour;
-	
-	private static String[] cells = {
-		"a1", "a2", "a3", "a4",
-		"b1", "b2", "b3", "b4",
-		"c1", "c2", "c3", "c4",
-		"d1", "d2", "d3", "d4",
-		"e1", "e2", "e3",
-		"f1", "f2", "f3",
-		"g1", "g2", "g3",
-		"h1", "h2",
-		"i1", "i2",
-		"j1"
-	};
+	// The search engine of an AI player, null for a human
+	private final AIModel aiModel;
 	
 	/**
 	*	Initializes a player with 15 spheres in hand.
-	*	@param type should be one of HUMAN or AI
+	*	@param type should be HUMAN or the index of an AI model in AIModels
 	*	@param colour should be one of Board.EMPTY_SPHERE, Board.BLACK_SPHERE or Board.WHITE_SPHERE
 	**/
 	public Player(int type, int colour)
@@ -47,6 +34,19 @@ class Player
 		playerType = type;
 		numSpheres = 15;
 		this.colour = colour;
+		aiModel = type == HUMAN ? null : AIModels.create(type);
+	}
+	
+	/**
+	*	Initializes a copy of a player, with the same type, colour and spheres in hand. The copy shares the AI model
+	*	of the player rather than creating a new one.
+	**/
+	public Player(Player other)
+	{
+		playerType = other.playerType;
+		numSpheres = other.numSpheres;
+		colour = other.colour;
+		aiModel = other.aiModel;
 	}
 	
 	/**
@@ -93,21 +93,7 @@ class Player
 		}
 		else
 		{
-
-			Class<?> aiModel = Pylos.aiModels.get(getPlayerType());
-			Method m = null;
-			try {
-				m = aiModel.getMethod("findMove", Board.class, Player.class, Player.class);
-			} catch (NoSuchMethodException | SecurityException e) {
-				e.printStackTrace();
-			}
-			String bestMove = null;
-			try {
-				bestMove = (String) m.invoke(null, board, this, otherPlayer);
-			} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-				e.printStackTrace();
-			}
-			//String bestMove = aiModel.findMove(board, this, otherPlayer);
+			String bestMove = aiModel.findMove(board, this, otherPlayer);
 			
 			if (bestMove.equals(""))
 				System.out.println("Could not find move");
@@ -122,74 +108,10 @@ class Player
 	private void printPossibleMoves(Board board, Player thisPlayer, Player otherPlayer)
 	{
 		System.out.println("Your possible moves:");
-		moveEnumeration: for (String cell: cells)
-		{
-			// All placing combinations
-			String move = "place " + cell;
-			
-			if (board.isValidMove(move, thisPlayer))
-				System.out.println(move);
-			
-			// Only consider removals if the place move is valid and leads to the completion of a row, column or square
-			if (board.canPlaceSphere(cell, thisPlayer) && board.placeMoveCompletes(cell, thisPlayer))
-			{
-				for (String firstRemove: cells)
-				{
-					move = "place " + cell + " r:" + firstRemove;
-					
-					if (board.isValidMove(move, thisPlayer))
-						System.out.println(move);
-					
-					// Only try removing 2 if we can remove the 1st
-					if (board.isValidMove(move, thisPlayer))
-					{
-						for (String secondRemove: cells)
-						{
-							move = "place " + cell + " r:" + firstRemove + ":" + secondRemove;
-							if (board.isValidMove(move, thisPlayer))
-								System.out.println(move);
-						}
-					}
-				}
-			}
-			
-			// Only consider raises if cell contains a sphere of the player's colour
-			if (board.getCell(cell) == thisPlayer.getColour())
-			{
-				// All raising combinations
-				for (String toCell: cells)
-				{
-					move = "raise " + cell + " " + toCell;
-					
-					if (board.isValidMove(move, thisPlayer))
-						System.out.println(move);
-					
-					// Only consider removals if the raise move is valid and leads to the completion of a row, column or square
-					if (board.canRaiseSphere(cell, toCell, thisPlayer) && board.raiseMoveCompletes(cell, toCell, thisPlayer))
-					{
-						for (String firstRemove: cells)
-						{
-							move = "raise " + cell + " " + toCell + " r:" + firstRemove;
-							
-							if (board.isValidMove(move, thisPlayer))
-								System.out.println(move);
-							
-							// Only try removing 2 if we can remove the 1st
-							if (board.isValidMove(move, thisPlayer))
-							{
-								for (String secondRemove: cells)
-								{
-									move = "raise " + cell + " " + toCell + " r:" + firstRemove + ":" + secondRemove;
-							
-									if (board.isValidMove(move, thisPlayer))
-										System.out.println(move);
-								}
-							}
-						}
-					}
-				}
-			}
-		}
+		MoveList moves = new MoveList();
+		board.generateMoves(thisPlayer, moves);
+		for (int i = 0; i < moves.size(); i++)
+			System.out.println(Moves.toString(moves.get(i)));
 	}
 	
 	/**
@@ -0,0 +1,340 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+*	Numbers the positions of the game that aren't over, with a range of empty cells, from 0 without gaps: a table of
+*	values about positions is then a flat array or a mapped file rather than a hash map, and getPosition gives back
+*	the position of a number.
+*	Positions come in the order of their occupied cells (whose supports are always occupied, and whose top is
+*	empty), the player to move, black first, the number of black spheres, then the rank of the black spheres among
+*	the subsets of the occupied cells of that size, in increasing order of mask. The spheres in hand are the ones not
+*	on the board, so they need no number of their own, and each player has one left as the game isn't over.
+*	A Cursor follows a position sphere by sphere and updates its number for less than numbering it again.
+**/
+final class PositionIndex
+{
+	// A player who has all of these on the board has lost, so a numbered position has at most one less
+	static final int SPHERES = 15;
+
+	private static final int TOP = 29;
+	private static final int FULL = (1 << 30) - 1;
+	private static final int BLACK_TO_MOVE_SHIFT = 60;
+
+	private static final long[][] binomials = new long[32][32];
+
+	static
+	{
+		for (int n = 0; n < binomials.length; n++)
+		{
+			binomials[n][0] = 1;
+			for (int k = 1; k <= n; k++)
+				binomials[n][k] = binomials[n - 1][k - 1] + binomials[n - 1][k];
+		}
+	}
+
+	private final int minEmpty;
+	private final int maxEmpty;
+	// Occupied cells of the positions, in increasing order. The positions of shape s start at shapeOffsets[s], the
+	// ones where white moves at shapeOffsets[s] + whiteOffsets[s], and the ones with b black spheres b entries after
+	// these in countOffsets[s]
+	private final int[] shapes;
+	private final long[] shapeOffsets;
+	private final long[] whiteOffsets;
+	private final long[][] countOffsets;
+	private final long size;
+
+	/**
+	*	@param minEmpty the fewest empty cells of a numbered position, counting the top
+	*	@param maxEmpty the most empty cells of a numbered position, 30 for all of them
+	**/
+	public PositionIndex(int minEmpty, int maxEmpty)
+	{
+		this.minEmpty = minEmpty;
+		this.maxEmpty = maxEmpty;
+		shapes = findShapes(minEmpty, maxEmpty);
+		shapeOffsets = new long[shapes.length];
+		whiteOffsets = new long[shapes.length];
+		countOffsets = new long[shapes.length][SPHERES];
+		long offset = 0;
+		for (int shape = 0; shape < shapes.length; shape++)
+		{
+			int count = Integer.bitCount(shapes[shape]);
+			long colourings = 0;
+			for (int black = minBlack(count); black <= maxBlack(count); black++)
+			{
+				countOffsets[shape][black] = colourings;
+				colourings += binomials[count][black];
+			}
+			shapeOffsets[shape] = offset;
+			whiteOffsets[shape] = colourings;
+			offset += 2 * colourings;
+		}
+		size = offset;
+	}
+
+	/**
+	*	Returns the occupied cells of the positions with minEmpty to maxEmpty empty cells that have a colouring where
+	*	neither player has lost. The empty cells are the top and cells whose spheres could be taken one after the other.
+	**/
+	private static int[] findShapes(int minEmpty, int maxEmpty)
+	{
+		Set<Integer> found = new TreeSet<>();
+		Set<Integer> current = new HashSet<>();
+		current.add(FULL & ~(1 << TOP));
+		for (int empty = 1; empty <= maxEmpty && !current.isEmpty(); empty++)
+		{
+			Set<Integer> next = new HashSet<>();
+			for (int occupied : current)
+			{
+				if (empty >= minEmpty && Integer.bitCount(occupied) <= 2 * (SPHERES - 1))
+					found.add(occupied);
+				int covered = 0;
+				for (int cells = occupied; cells != 0; cells &= cells - 1)
+					covered |= Board.getCellsBelow(Integer.numberOfTrailingZeros(cells));
+				for (int free = occupied & ~covered; free != 0; free &= free - 1)
+					next.add(occupied & ~(free & -free));
+			}
+			current = next;
+		}
+		return found.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	static int minBlack(int count)
+	{
+		return Math.max(0, count - (SPHERES - 1));
+	}
+
+	static int maxBlack(int count)
+	{
+		return Math.min(SPHERES - 1, count);
+	}
+
+	public int getMinEmpty()
+	{
+		return minEmpty;
+	}
+
+	public int getMaxEmpty()
+	{
+		return maxEmpty;
+	}
+
+	/**
+	*	@return the number of positions, which are numbered from 0 to getSize() - 1
+	**/
+	public long getSize()
+	{
+		return size;
+	}
+
+	int getShapeCount()
+	{
+		return shapes.length;
+	}
+
+	int getShape(int shape)
+	{
+		return shapes[shape];
+	}
+
+	/**
+	*	@return the number of the first position of the shape with this player to move and number of black spheres,
+	*	the others following in the order of the ranks of their black spheres
+	**/
+	long getFirstIndex(int shape, boolean blackToMove, int blackCount)
+	{
+		return shapeOffsets[shape] + (blackToMove ? 0 : whiteOffsets[shape]) + countOffsets[shape][blackCount];
+	}
+
+	/**
+	*	@return the number of the position, or -1 if it isn't numbered
+	**/
+	public long getIndex(int black, int white, boolean blackToMove)
+	{
+		return getIndex(black | white, black, blackToMove, getRank(black | white, black));
+	}
+
+	private long getIndex(int occupied, int black, boolean blackToMove, long rank)
+	{
+		int shape = Arrays.binarySearch(shapes, occupied);
+		if (shape < 0)
+			return -1;
+		int count = Integer.bitCount(occupied);
+		int blackCount = Integer.bitCount(black);
+		if (blackCount < minBlack(count) || blackCount > maxBlack(count))
+			return -1;
+		return getFirstIndex(shape, blackToMove, blackCount) + rank;
+	}
+
+	/**
+	*	@return the rank of the subset among the subsets of cells of the same size, in increasing order of mask
+	**/
+	static long getRank(int cells, int subset)
+	{
+		long rank = 0;
+		int k = 0;
+		for (int spheres = subset; spheres != 0; spheres &= spheres - 1)
+			rank += binomials[Integer.bitCount(cells & ((spheres & -spheres) - 1))][++k];
+		return rank;
+	}
+
+	/**
+	*	@return the position of the number, packed for black, white and blackToMove
+	*	@throws IndexOutOfBoundsException if no position has this number
+	**/
+	public long getPosition(long index)
+	{
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("no position has the number " + index);
+		int shape = Arrays.binarySearch(shapeOffsets, index);
+		if (shape < 0)
+			shape = -shape - 2;
+		long offset = index - shapeOffsets[shape];
+		boolean blackToMove = offset < whiteOffsets[shape];
+		if (!blackToMove)
+			offset -= whiteOffsets[shape];
+		int occupied = shapes[shape];
+		int count = Integer.bitCount(occupied);
+		int blackCount = maxBlack(count);
+		while (countOffsets[shape][blackCount] > offset)
+			blackCount--;
+		long rank = offset - countOffsets[shape][blackCount];
+
+		int subset = 0;
+		int cell = count;
+		for (int k = blackCount; k > 0; k--)
+		{
+			do
+				cell--;
+			while (binomials[cell][k] > rank);
+			rank -= binomials[cell][k];
+			subset |= 1 << cell;
+		}
+		int black = deposit(subset, occupied);
+		return pack(black, occupied & ~black, blackToMove);
+	}
+
+	/**
+	*	@return the cells of mask selected by the bits of subset, bit i of subset standing for the i-th cell of mask
+	**/
+	static int deposit(int subset, int mask)
+	{
+		int cells = 0;
+		for (; subset != 0; subset >>>= 1, mask &= mask - 1)
+			if ((subset & 1) != 0)
+				cells |= mask & -mask;
+		return cells;
+	}
+
+	public static long pack(int black, int white, boolean blackToMove)
+	{
+		return black | (long) white << 30 | (blackToMove ? 1L << BLACK_TO_MOVE_SHIFT : 0);
+	}
+
+	public static int black(long position)
+	{
+		return (int) position & FULL;
+	}
+
+	public static int white(long position)
+	{
+		return (int) (position >>> 30) & FULL;
+	}
+
+	public static boolean blackToMove(long position)
+	{
+		return (position >>> BLACK_TO_MOVE_SHIFT) != 0;
+	}
+
+	public Cursor newCursor()
+	{
+		return new Cursor();
+	}
+
+	/**
+	*	Follows a position as spheres are placed and removed, keeping the rank of its black spheres up to date: a
+	*	change only moves the rank by the terms of the black spheres on higher cells, where numbering the position
+	*	again goes through all of them. The positions in between don't need to be numbered, such as the one between
+	*	the two halves of a raise.
+	**/
+	final class Cursor
+	{
+		private int occupied;
+		private int black;
+		private boolean blackToMove = true;
+		private long rank;
+
+		private Cursor()
+		{
+		}
+
+		public Cursor set(int black, int white, boolean blackToMove)
+		{
+			this.occupied = black | white;
+			this.black = black;
+			this.blackToMove = blackToMove;
+			rank = getRank(occupied, black);
+			return this;
+		}
+
+		public Cursor place(int cell, int colour)
+		{
+			int bit = 1 << cell;
+			boolean isBlack = colour == Board.BLACK_SPHERE;
+			rank += getDelta(bit, isBlack);
+			occupied |= bit;
+			if (isBlack)
+				black |= bit;
+			return this;
+		}
+
+		public Cursor remove(int cell)
+		{
+			int bit = 1 << cell;
+			boolean isBlack = (black & bit) != 0;
+			occupied &= ~bit;
+			black &= ~bit;
+			rank -= getDelta(bit, isBlack);
+			return this;
+		}
+
+		/**
+		*	@return how much the rank grows when a sphere goes on the cell, which neither occupied nor black holds:
+		*	a black sphere adds its own term and moves the higher black spheres one cell and one rank up, another
+		*	sphere moves them one cell up
+		**/
+		private long getDelta(int bit, boolean isBlack)
+		{
+			long delta = 0;
+			int k = Integer.bitCount(black & (bit - 1));
+			if (isBlack)
+			{
+				delta += binomials[Integer.bitCount(occupied & (bit - 1))][++k];
+				for (int spheres = black & -(bit << 1); spheres != 0; spheres &= spheres - 1)
+					delta += binomials[Integer.bitCount(occupied & ((spheres & -spheres) - 1))][++k];
+			}
+			else
+			{
+				for (int spheres = black & -(bit << 1); spheres != 0; spheres &= spheres - 1)
+					delta += binomials[Integer.bitCount(occupied & ((spheres & -spheres) - 1))][k++];
+			}
+			return delta;
+		}
+
+		public Cursor setBlackToMove(boolean blackToMove)
+		{
+			this.blackToMove = blackToMove;
+			return this;
+		}
+
+		/**
+		*	@return the number of the position, or -1 if it isn't numbered
+		**/
+		public long getIndex()
+		{
+			return PositionIndex.this.getIndex(occupied, black, blackToMove, rank);
+		}
+	}
+}
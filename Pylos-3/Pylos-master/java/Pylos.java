@@ -3,21 +3,16 @@
 *	@version 1.0
 **/
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 
 class Pylos
 {
-	public static ArrayList<Class<?>> aiModels = new ArrayList<>();
 	/**
 	*	Entry point for the game, asks the user for the number of human players, and if applicable,
 	*	which colour he/she would like to play.
 	**/
 	public static void main(String[] args)
 	{
-		aiModels.add(Minimax.class);
-		aiModels.add(AltMiniMax.class);
-	
 		Player white, black, turn;
 		Scanner scanner = new Scanner(System.in);
 		
@@ -44,15 +39,8 @@ class Pylos
 		{
 			case 0:
 				System.out.println("AI models:");
-				for(int i = 0; i < aiModels.size(); i++){
-					try {
-						System.out.println((i+1) + ". " + ((Object)(aiModels.get(i).getDeclaredConstructor().newInstance())).toString());
-					} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-							| InvocationTargetException | NoSuchMethodException | SecurityException e) {
-						e.printStackTrace();
-					}
-					
-				}
+				for (int i = 0; i < AIModels.size(); i++)
+					System.out.println((i+1) + ". " + AIModels.getName(i));
 				System.out.print("Select the AI model for the white ball player:");
 				int aiOne = scanner.nextInt() - 1;
 				scanner.nextLine();
@@ -70,15 +58,8 @@ class Pylos
 				scanner.nextLine();
 
 				System.out.println("AI models:");
-				for(int i = 0; i < aiModels.size(); i++){
-					try {
-						System.out.println((i+1) + ". " + ((Object)(aiModels.get(i).getDeclaredConstructor().newInstance())).toString());
-					} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-							| InvocationTargetException | NoSuchMethodException | SecurityException e) {
-						e.printStackTrace();
-					}
-					
-				}
+				for (int i = 0; i < AIModels.size(); i++)
+					System.out.println((i+1) + ". " + AIModels.getName(i));
 				System.out.print("Select the AI model for the " + (color == 0? "black" : "white") + " color ball: ");
 				aiOne = scanner.nextInt() - 1;
 				scanner.nextLine();
@@ -117,21 +98,11 @@ class Pylos
 		System.out.println((gameBoard.getWinner(black, white) == Board.BLACK_SPHERE ? "Black" : "White") + " wins!");
 		if(gameBoard.getWinner(black, white) == Board.BLACK_SPHERE){
 			if(black.getPlayerType() >= 0){
-				try {
-					System.out.println("AI model of winner: " + aiModels.get(black.getPlayerType()).getDeclaredConstructor().newInstance().toString());
-				} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-						| InvocationTargetException | NoSuchMethodException | SecurityException e) {
-					e.printStackTrace();
-				}
+				System.out.println("AI model of winner: " + AIModels.getName(black.getPlayerType()));
 			}
 		}else{
-			if(black.getPlayerType() >= 0){
-				try {
-					System.out.println("AI model of winner: " + aiModels.get(white.getPlayerType()).getDeclaredConstructor().newInstance().toString());
-				} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-						| InvocationTargetException | NoSuchMethodException | SecurityException e) {
-					e.printStackTrace();
-				}
+			if(white.getPlayerType() >= 0){
+				System.out.println("AI model of winner: " + AIModels.getName(white.getPlayerType()));
 			}
 		}
 		gameBoard.printBoard();
@@ -14,14 +14,31 @@ public class ScoringEval {
 	**/
 	private Board currentBoard;
 	
+	/**
+	*	Scores of the positions already evaluated, shared by all the boards and threads. The keys combine the hash
+	*	of the position with the weights, so evaluations with different weights do not mix
+	**/
+	static final EvaluationCache cache = new EvaluationCache(1 << 16);
+	private final long weightsKey;
+	
 	public ScoringEval(Board b, int SPHERES_LEFT_WEIGHT, int CLIMBING_WEIGHT){
 		currentBoard = b;
 		this.SPHERES_LEFT_WEIGHT = SPHERES_LEFT_WEIGHT; // 2
 		this.CLIMBING_WEIGHT = CLIMBING_WEIGHT; // 3
+		// The finalizer of SplitMix64, so that close weights give unrelated keys
+		long key = (long) SPHERES_LEFT_WEIGHT << 32 ^ CLIMBING_WEIGHT;
+		key = (key ^ key >>> 30) * 0xBF58476D1CE4E5B9L;
+		key = (key ^ key >>> 27) * 0x94D049BB133111EBL;
+		weightsKey = key ^ key >>> 31;
 	}
 
 	public int evaluateBoard(Player p1, Player p2)
 	{
+		long key = currentBoard.getPositionHash() ^ weightsKey;
+		int cached = cache.get(key);
+		if (cached != EvaluationCache.MISS)
+			return cached;
+		
 		Player black, white;
 		
 		int score = 0;
@@ -37,11 +54,9 @@ public class ScoringEval {
 		}
 		
 		score += SPHERES_LEFT_WEIGHT * (black.getNumSpheres() - white.getNumSpheres());
-		for (int level = 0; level < 4; level++)
-		{
-			score += CLIMBING_WEIGHT * (level + 1) * currentBoard.countSpheresOnLevel(level, black);
-			score -= CLIMBING_WEIGHT * (level + 1) * currentBoard.countSpheresOnLevel(level, white);
-		}
+		// The sum over the levels of (level + 1) * spheres on the level, kept up to date by the board
+		score += CLIMBING_WEIGHT * (currentBoard.getHeightSum(black) - currentBoard.getHeightSum(white));
+		cache.put(key, score);
 		return score;
 	}
 	
@@ -0,0 +1,319 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+*	The alpha-beta search of Minimax, as an object so that each thread of a parallel search can run its own: a worker
+*	keeps its move buffers, killer moves, history and transposition table from one search to the next, and must only
+*	be used by one thread at a time. All the workers of a search share a stop flag, raised by the first one to find
+*	that the time is up.
+**/
+class SearchWorker
+{
+	/**
+	*	Limits of the quiescence search run from each leaf: the number of plies beyond the leaf, and the number of
+	*	moves made. Feel free to modify these values
+	**/
+	public static final int QUIESCENCE_DEPTH = 6;
+	public static final int QUIESCENCE_NODES = 64;
+
+	private static final int HASH_MOVE_SCORE = 1 << 30;
+	private static final int RAISE_SCORE = 1 << 28;
+	private static final int KILLER_SCORE = 1 << 27;
+	private static final int COMPLETION_SCORE = -(1 << 28);
+
+	private final TranspositionTable table;
+	// One move buffer per ply
+	private final MoveList[] moveLists;
+	// Move ordering: two quiet moves per ply that recently caused a cutoff, and how often each (from, to) pair
+	// caused one, weighted by the depth searched. Places come from Moves.NONE
+	private final int[][] killerMoves;
+	private final int[][] history = new int[32][32];
+
+	// Solved endgames, null when there is no tablebase file
+	private final Tablebase tablebase = Tablebase.getDefault();
+
+	// The best move found at the root, searched first by the next iteration
+	private int bestMove = Moves.NO_MOVE;
+
+	private boolean principalVariation = false;
+
+	private long deadline;
+	private AtomicBoolean stop = new AtomicBoolean();
+
+	private long nodesTraversed = 0;
+	private long quiescenceNodes = 0;
+	private int leafQuiescenceNodes = 0;
+	private long movesGenerated = 0;
+	private long cutoffs = 0;
+	private long firstMoveCutoffs = 0;
+
+	/**
+	*	@param tableMegabytes the memory given to the worker's transposition table
+	*	@param maxDepth the deepest search the worker will be asked for
+	**/
+	public SearchWorker(int tableMegabytes, int maxDepth)
+	{
+		this(tableMegabytes, maxDepth, false);
+	}
+
+	/**
+	*	@param tableMegabytes the memory given to the worker's transposition table
+	*	@param maxDepth the deepest search the worker will be asked for
+	*	@param principalVariation true to search only the first move of each node with the full window. The others
+	*		are expected to be worse, which a search with a null window proves at a fraction of the cost; they are
+	*		searched again with the full window when it fails
+	**/
+	public SearchWorker(int tableMegabytes, int maxDepth, boolean principalVariation)
+	{
+		this(new TranspositionTable(tableMegabytes), maxDepth);
+		this.principalVariation = principalVariation;
+	}
+
+	/**
+	*	@param table the transposition table of the worker, only used by it (see TranspositionTable.share)
+	*	@param maxDepth the deepest search the worker will be asked for
+	**/
+	public SearchWorker(TranspositionTable table, int maxDepth)
+	{
+		this.table = table;
+		moveLists = new MoveList[maxDepth + QUIESCENCE_DEPTH + 1];
+		for (int i = 0; i < moveLists.length; i++)
+			moveLists[i] = new MoveList();
+		killerMoves = new int[maxDepth + 1][2];
+	}
+
+	/**
+	*	Prepares the worker for the search of a new move.
+	*	@param deadline the System.nanoTime after which the search must stop
+	*	@param stop the flag shared by the workers of the search
+	**/
+	public void newSearch(long deadline, AtomicBoolean stop)
+	{
+		this.deadline = deadline;
+		this.stop = stop;
+		bestMove = Moves.NO_MOVE;
+		nodesTraversed = 0;
+		quiescenceNodes = 0;
+		movesGenerated = 0;
+		cutoffs = 0;
+		firstMoveCutoffs = 0;
+		table.newSearch();
+		// Keep what was learnt on the previous turns, but let this turn weigh more
+		for (int[] fromHistory : history)
+			for (int to = 0; to < fromHistory.length; to++)
+				fromHistory[to] /= 2;
+	}
+
+	public long getNodesTraversed() { return nodesTraversed; }
+	public long getQuiescenceNodes() { return quiescenceNodes; }
+	public long getMovesGenerated() { return movesGenerated; }
+	public long getCutoffs() { return cutoffs; }
+	public long getFirstMoveCutoffs() { return firstMoveCutoffs; }
+	public TranspositionTable getTable() { return table; }
+	public Tablebase getTablebase() { return tablebase; }
+
+	/**
+	*	@return the best move found by the last search of the root, which is the best move so far if it was stopped
+	**/
+	public int getBestMove()
+	{
+		return bestMove;
+	}
+
+	/**
+	*	@return true if the search was stopped, in which case the scores it returned are meaningless
+	**/
+	public boolean isStopped()
+	{
+		return stop.get();
+	}
+
+	/**
+	*	Searches a position, with scores from black's point of view like Minimax.
+	*	@param depth the distance from the root, 0 for the root itself, whose best move getBestMove then gives
+	*	@param maxDepth the depth of the leaves
+	**/
+	public int search(Board board, Player p1, Player p2, int depth, int maxDepth, int alpha, int beta)
+	{
+		if (board.gameOver(p1, p2))
+			return board.getWinner(p1, p2) == Board.BLACK_SPHERE ? Integer.MAX_VALUE - 1 : Integer.MIN_VALUE + 1;
+		else if (depth == maxDepth)
+		{
+			// A solved position needs no evaluation
+			if (tablebase != null)
+			{
+				int score = tablebase.probeScore(board, p1, p2);
+				if (score != Tablebase.UNKNOWN)
+					return score;
+			}
+			leafQuiescenceNodes = 0;
+			return quiesce(board, p1, p2, depth, maxDepth, alpha, beta);
+		}
+
+		// The root is always searched, as it has to set bestMove. Symmetric positions share their entry
+		int symmetry = board.getCanonicalSymmetry();
+		long hash = board.getImageHash(p1, symmetry);
+		// At the root, the best move of the previous iteration is the most likely to be the best again
+		int hashMove = bestMove;
+		if (depth > 0)
+		{
+			hashMove = Moves.NO_MOVE;
+			if (table.probe(hash))
+			{
+				int score = table.getScore();
+				if (table.getDepth() >= maxDepth - depth
+					&& (table.getBound() == TranspositionTable.EXACT
+					|| table.getBound() == TranspositionTable.LOWER_BOUND && score >= beta
+					|| table.getBound() == TranspositionTable.UPPER_BOUND && score <= alpha))
+					return score;
+				// A shallower result still knows which move to try first, once back from the canonical form
+				hashMove = Symmetries.transformMove(Symmetries.inverse(symmetry), table.getMove());
+			}
+		}
+
+		boolean black = p1.getColour() == Board.BLACK_SPHERE;
+		int originalAlpha = alpha, originalBeta = beta;
+		int bestMoveScore = black ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		int bestLocalMove = Moves.NO_MOVE;
+
+		MoveList moves = moveLists[depth];
+		board.generateMoves(p1, moves);
+		movesGenerated += moves.size();
+		scoreMoves(moves, depth, hashMove);
+
+		for (int i = 0; i < moves.size(); i++)
+		{
+			int move = moves.selectBest(i);
+			// Checking the clock on every node would be too costly
+			if ((++nodesTraversed & 1023) == 0 && System.nanoTime() > deadline)
+				stop.set(true);
+			board.move(move, p1);
+			int score;
+			if (principalVariation && i > 0)
+			{
+				// Black tries to prove the move scores no more than alpha, white no less than beta. The score
+				// is only trusted, and the move only kept, once confirmed by a search with the full window
+				if (black)
+					score = search(board, p2, p1, depth + 1, maxDepth, alpha, alpha + 1);
+				else
+					score = search(board, p2, p1, depth + 1, maxDepth, beta - 1, beta);
+				if (!stop.get() && score > alpha && score < beta)
+					score = search(board, p2, p1, depth + 1, maxDepth, alpha, beta);
+			}
+			else
+				score = search(board, p2, p1, depth + 1, maxDepth, alpha, beta);
+			board.undoMove(move, p1);
+			// An unfinished search gives wrong scores, which must not be stored nor compared
+			if (stop.get())
+				return 0;
+
+			if (black ? score > bestMoveScore : score < bestMoveScore)
+			{
+				bestMoveScore = score;
+				bestLocalMove = move;
+				if (depth == 0)
+					bestMove = move;
+			}
+			if (black)
+				alpha = Math.max(alpha, bestMoveScore);
+			else
+				beta = Math.min(beta, bestMoveScore);
+			if (alpha >= beta)
+			{
+				cutoffs++;
+				if (i == 0)
+					firstMoveCutoffs++;
+				if (Moves.removalCount(move) == 0)
+				{
+					if (killerMoves[depth][0] != move)
+					{
+						killerMoves[depth][1] = killerMoves[depth][0];
+						killerMoves[depth][0] = move;
+					}
+					history[Moves.from(move)][Moves.to(move)] += (maxDepth - depth) * (maxDepth - depth);
+				}
+				break;
+			}
+		}
+
+		// Scores are always from black's point of view, so the bounds don't depend on the player
+		int bound = bestMoveScore <= originalAlpha ? TranspositionTable.UPPER_BOUND
+			: bestMoveScore >= originalBeta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+		table.store(hash, maxDepth - depth, bound, bestMoveScore, Symmetries.transformMove(symmetry, bestLocalMove));
+
+		return bestMoveScore;
+	}
+
+	/**
+	*	Searches only the raises from a leaf of the search, so that a leaf isn't evaluated just before a raise saves
+	*	a sphere. The player to move can always stand pat instead: its score is at least the evaluation of the position,
+	*	as it could make a quiet move. Completions aren't searched, as the evaluation always scores taking spheres
+	*	back as a loss: searching them too made the search weaker.
+	**/
+	private int quiesce(Board board, Player p1, Player p2, int depth, int maxDepth, int alpha, int beta)
+	{
+		if (board.gameOver(p1, p2))
+			return board.getWinner(p1, p2) == Board.BLACK_SPHERE ? Integer.MAX_VALUE - 1 : Integer.MIN_VALUE + 1;
+
+		int standPat = board.evaluateBoard(p1, p2);
+		if (depth - maxDepth == QUIESCENCE_DEPTH || leafQuiescenceNodes >= QUIESCENCE_NODES)
+			return standPat;
+		boolean black = p1.getColour() == Board.BLACK_SPHERE;
+		if (black ? standPat >= beta : standPat <= alpha)
+			return standPat;
+		if (black)
+			alpha = Math.max(alpha, standPat);
+		else
+			beta = Math.min(beta, standPat);
+
+		int bestMoveScore = standPat;
+		MoveList moves = moveLists[depth];
+		board.generateRaises(p1, moves);
+		for (int i = 0; i < moves.size() && leafQuiescenceNodes < QUIESCENCE_NODES; i++)
+		{
+			int move = moves.get(i);
+			leafQuiescenceNodes++;
+			quiescenceNodes++;
+			board.move(move, p1);
+			int score = quiesce(board, p2, p1, depth + 1, maxDepth, alpha, beta);
+			board.undoMove(move, p1);
+
+			if (black ? score > bestMoveScore : score < bestMoveScore)
+				bestMoveScore = score;
+			if (black)
+				alpha = Math.max(alpha, bestMoveScore);
+			else
+				beta = Math.min(beta, bestMoveScore);
+			if (alpha >= beta)
+				break;
+		}
+		return bestMoveScore;
+	}
+
+	/**
+	*	Scores the moves in the order they should be searched: the move from the transposition table, raises,
+	*	killer moves, the other moves by history, then completions. The evaluation counts the spheres a completion
+	*	takes back as height lost, so completions rarely cause a cutoff and are left for last: trying them first
+	*	made searches visit about 8 times as many nodes.
+	**/
+	private void scoreMoves(MoveList moves, int depth, int hashMove)
+	{
+		for (int i = 0; i < moves.size(); i++)
+		{
+			int move = moves.get(i);
+			int score;
+			if (move == hashMove)
+				score = HASH_MOVE_SCORE;
+			else if (Moves.removalCount(move) > 0)
+				score = COMPLETION_SCORE - Moves.removalCount(move);
+			else if (Moves.type(move) == Moves.RAISE)
+				score = RAISE_SCORE;
+			else if (move == killerMoves[depth][0])
+				score = KILLER_SCORE + 1;
+			else if (move == killerMoves[depth][1])
+				score = KILLER_SCORE;
+			else
+				score = Math.min(history[Moves.from(move)][Moves.to(move)], KILLER_SCORE - 1);
+			moves.setScore(i, score);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/**
+*	The 8 symmetries of the pyramid: the rotations and reflections of the 4x4 base, applied in the same way
+*	to every level above it. Symmetry 0 is the identity. Positions that are images of each other under a symmetry
+*	have the same value, so searches and tables can key them all on a single canonical form (see Board.getCanonicalHash).
+**/
+final class Symmetries
+{
+	public static final int COUNT = 8;
+
+	// Maps a board index to its image under each symmetry
+	private static final int[][] cellPermutations = new int[COUNT][30];
+	private static final int[] inverses = new int[COUNT];
+	// Images of the masks of each byte of a board mask, so that a whole mask is transformed with 4 lookups
+	private static final int[][][] maskTables = new int[COUNT][4][256];
+
+	static
+	{
+		int[] levelOffsetTable = {0, 16, 25, 29};
+		for (int level = 0; level < 4; level++)
+		{
+			int size = 4 - level;
+			for (int row = 0; row < size; row++)
+				for (int col = 0; col < size; col++)
+					for (int symmetry = 0; symmetry < COUNT; symmetry++)
+						cellPermutations[symmetry][levelOffsetTable[level] + row * size + col] =
+							levelOffsetTable[level] + transformRow(symmetry, row, col, size - 1) * size + transformCol(symmetry, row, col, size - 1);
+		}
+
+		for (int symmetry = 0; symmetry < COUNT; symmetry++)
+			for (int part = 0; part < 4; part++)
+				for (int bits = 0; bits < 256; bits++)
+					for (int bit = 0; bit < 8 && part * 8 + bit < 30; bit++)
+						if ((bits & 1 << bit) != 0)
+							maskTables[symmetry][part][bits] |= 1 << cellPermutations[symmetry][part * 8 + bit];
+
+		for (int symmetry = 0; symmetry < COUNT; symmetry++)
+			for (int other = 0; other < COUNT; other++)
+				if (transformCell(other, transformCell(symmetry, 1)) == 1 && transformCell(other, transformCell(symmetry, 4)) == 4)
+					inverses[symmetry] = other;
+	}
+
+	private Symmetries()
+	{
+	}
+
+	// Symmetries 0 to 3 are the rotations by a quarter turn, 4 to 7 are these rotations followed by a reflection
+	private static int transformRow(int symmetry, int row, int col, int last)
+	{
+		switch (symmetry)
+		{
+			case 0: case 4: return row;
+			case 1: case 6: return col;
+			case 2: case 5: return last - row;
+			default: return last - col;
+		}
+	}
+
+	private static int transformCol(int symmetry, int row, int col, int last)
+	{
+		switch (symmetry)
+		{
+			case 0: case 5: return col;
+			case 1: case 7: return last - row;
+			case 2: case 4: return last - col;
+			default: return row;
+		}
+	}
+
+	/**
+	*	@return the image of a board index under the symmetry, Moves.NONE being left unchanged
+	**/
+	public static int transformCell(int symmetry, int cell)
+	{
+		return cell == Moves.NONE ? Moves.NONE : cellPermutations[symmetry][cell];
+	}
+
+	/**
+	*	@return the image of a mask of board indices under the symmetry
+	**/
+	public static int transformMask(int symmetry, int mask)
+	{
+		int[][] tables = maskTables[symmetry];
+		return tables[0][mask & 0xFF] | tables[1][mask >>> 8 & 0xFF] | tables[2][mask >>> 16 & 0xFF] | tables[3][mask >>> 24 & 0xFF];
+	}
+
+	/**
+	*	@return the move played on the image of a board under the symmetry that is the image of the given move
+	**/
+	public static int transformMove(int symmetry, int move)
+	{
+		if (move == Moves.NO_MOVE)
+			return Moves.NO_MOVE;
+
+		int to = transformCell(symmetry, Moves.to(move));
+		int firstRemoval = transformCell(symmetry, Moves.firstRemoval(move));
+		int secondRemoval = transformCell(symmetry, Moves.secondRemoval(move));
+		if (Moves.type(move) == Moves.PLACE)
+			return Moves.place(to, firstRemoval, secondRemoval);
+		return Moves.raise(transformCell(symmetry, Moves.from(move)), to, firstRemoval, secondRemoval);
+	}
+
+	/**
+	*	@return the symmetry undoing the given one
+	**/
+	public static int inverse(int symmetry)
+	{
+		return inverses[symmetry];
+	}
+}
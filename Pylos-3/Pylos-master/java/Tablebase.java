@@ -0,0 +1,370 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+*	An endgame tablebase: the value of every position with at most a given number of empty cells, solved by
+*	retrograde analysis and stored in a binary file that the searches map in memory.
+*	The value of a position is a byte, for the player to move: a win in d plies is stored as d, a loss in d plies
+*	as -d, and UNKNOWN when the tablebase could not solve it. Completions take spheres back, so the game can leave
+*	the tablebase, and positions whose value depends on where it goes stay unknown.
+*	Positions are numbered by a PositionIndex rather than hashed, so the file holds nothing but the values.
+**/
+class Tablebase
+{
+	public static final int UNKNOWN = 0;
+
+	/**
+	*	Longer wins and losses are left unknown, as their distance doesn't fit in a byte
+	**/
+	public static final int MAX_DISTANCE = 127;
+
+	/**
+	*	The file read by getDefault when the pylos.tablebase system property doesn't name another one
+	**/
+	public static final String DEFAULT_FILE = "pylos.tablebase";
+
+	private static final int MAGIC = 0x50594C54;
+	private static final int VERSION = 2;
+	private static final int HEADER_BYTES = 32;
+
+	// A MappedByteBuffer holds at most 2GB, larger files are mapped as several chunks
+	private static final int CHUNK_BITS = 30;
+	private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+	private static final int TOP = 29;
+	private static final int SPHERES = PositionIndex.SPHERES;
+
+	private static Tablebase defaultTablebase;
+	private static boolean defaultOpened;
+
+	private final PositionIndex index;
+	private final long positions;
+	private final MappedByteBuffer[] chunks;
+
+	private final LongAdder probes = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+
+	private Tablebase(int maxEmpty, FileChannel channel, FileChannel.MapMode mode) throws IOException
+	{
+		index = new PositionIndex(1, maxEmpty);
+		positions = index.getSize();
+
+		long size = HEADER_BYTES + positions;
+		chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+		for (int i = 0; i < chunks.length; i++)
+		{
+			long start = (long) i << CHUNK_BITS;
+			chunks[i] = channel.map(mode, start, Math.min(size - start, 1L << CHUNK_BITS));
+		}
+	}
+
+	/**
+	*	Returns the tablebase of the file named by the pylos.tablebase system property, or of DEFAULT_FILE,
+	*	opened on the first call. The searches run without one when there is no such file.
+	*	@return the tablebase, or null if there is none
+	**/
+	public static synchronized Tablebase getDefault()
+	{
+		if (!defaultOpened)
+		{
+			defaultOpened = true;
+			Path file = Paths.get(System.getProperty("pylos.tablebase", DEFAULT_FILE));
+			if (Files.exists(file))
+			{
+				try
+				{
+					defaultTablebase = open(file);
+				}
+				catch (IOException e)
+				{
+					System.out.println("Could not open the tablebase " + file + ": " + e.getMessage());
+				}
+			}
+		}
+		return defaultTablebase;
+	}
+
+	/**
+	*	Maps a tablebase file written by generate.
+	*	@throws IOException if the file can't be read or isn't a tablebase
+	**/
+	public static Tablebase open(Path file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			channel.read(header, 0);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+				throw new IOException("not a tablebase of this version");
+			Tablebase tablebase = new Tablebase(header.getInt(8), channel, FileChannel.MapMode.READ_ONLY);
+			if (header.getLong(16) != tablebase.positions || channel.size() != HEADER_BYTES + tablebase.positions)
+				throw new IOException("truncated tablebase");
+			return tablebase;
+		}
+	}
+
+	/**
+	*	Told about each pass of the analysis run by generate, which prints nothing itself.
+	**/
+	public interface Progress
+	{
+		/**
+		*	@param wins the positions found won in distance plies
+		*	@param losses the positions found lost in distance plies
+		**/
+		void passDone(int distance, long wins, long losses);
+	}
+
+	/**
+	*	Solves every position with at most maxEmpty empty cells and writes their values to the file, which is used
+	*	as the working memory of the analysis: the tablebase doesn't need to fit in the heap.
+	*	@return the tablebase, mapped for reading and writing
+	**/
+	public static Tablebase generate(int maxEmpty, Path file) throws IOException
+	{
+		return generate(maxEmpty, file, (distance, wins, losses) -> { });
+	}
+
+	/**
+	*	Like generate(maxEmpty, file), telling the progress of the analysis after each pass.
+	**/
+	public static Tablebase generate(int maxEmpty, Path file, Progress progress) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+			StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			// The file grows to the mapped size, filled with zeros, that is with unknown values
+			Tablebase tablebase = new Tablebase(maxEmpty, channel, FileChannel.MapMode.READ_WRITE);
+			tablebase.solve(progress);
+			ByteBuffer header = tablebase.chunks[0];
+			header.putInt(0, MAGIC);
+			header.putInt(4, VERSION);
+			header.putInt(8, maxEmpty);
+			header.putLong(16, tablebase.positions);
+			for (MappedByteBuffer chunk : tablebase.chunks)
+				chunk.force();
+			return tablebase;
+		}
+	}
+
+	/**
+	*	Retrograde analysis, one pass per distance: a pass finds the positions won in d plies, which have a move to a
+	*	position lost in d - 1, and the positions lost in d plies, whose moves all lead to positions won in at most
+	*	d - 1 with one won in d - 1. The analysis ends with the first pass that finds nothing, as no longer win or
+	*	loss can follow it.
+	**/
+	private void solve(Progress progress)
+	{
+		MoveList moves = new MoveList();
+		for (int distance = 1; distance <= MAX_DISTANCE; distance++)
+		{
+			long wins = 0, losses = 0;
+			for (int shape = 0; shape < index.getShapeCount(); shape++)
+			{
+				int occupied = index.getShape(shape);
+				int count = Integer.bitCount(occupied);
+				for (int side = 0; side < 2; side++)
+				{
+					boolean blackToMove = side == 0;
+					for (int blackCount = PositionIndex.minBlack(count); blackCount <= PositionIndex.maxBlack(count); blackCount++)
+					{
+						long position = index.getFirstIndex(shape, blackToMove, blackCount);
+						// The subsets of blackCount cells come in increasing order, which is the order of their ranks
+						for (int subset = (1 << blackCount) - 1; subset < 1 << count; subset = nextSubset(subset), position++)
+						{
+							if (getValue(position) == UNKNOWN)
+							{
+								int black = PositionIndex.deposit(subset, occupied);
+								int white = occupied & ~black;
+								int value = blackToMove ? solve(black, white, Board.BLACK_SPHERE, distance, moves)
+									: solve(white, black, Board.WHITE_SPHERE, distance, moves);
+								if (value != UNKNOWN)
+								{
+									setValue(position, value);
+									if (value > 0)
+										wins++;
+									else
+										losses++;
+								}
+							}
+							if (subset == 0)
+								break;
+						}
+					}
+				}
+			}
+			progress.passDone(distance, wins, losses);
+			if (wins + losses == 0)
+				break;
+		}
+	}
+
+	/**
+	*	@param mover the spheres of the player to move
+	*	@param other the spheres of the other player
+	*	@return the value of the position if it is won or lost in exactly distance plies, UNKNOWN otherwise
+	**/
+	private int solve(int mover, int other, int moverColour, int distance, MoveList moves)
+	{
+		Board.generateMoves(mover, mover | other, true, moves, true);
+		boolean allLost = moves.size() > 0;
+		int longestLoss = 0;
+		for (int i = 0; i < moves.size(); i++)
+		{
+			int spheres = play(mover, moves.get(i));
+			int win = 0, loss = 0;
+			// The rules of Board.gameOver and getWinner: the top wins, then running out of spheres loses
+			if ((spheres & 1 << TOP) != 0)
+				win = 1;
+			else if (Integer.bitCount(spheres) == SPHERES)
+				loss = 1;
+			else
+			{
+				int value = getValue(moverColour == Board.BLACK_SPHERE ? spheres : other,
+					moverColour == Board.BLACK_SPHERE ? other : spheres, moverColour != Board.BLACK_SPHERE);
+				if (value < 0)
+					win = 1 - value;
+				else if (value > 0)
+					loss = 1 + value;
+			}
+			if (win == distance)
+				return distance;
+			if (loss == 0)
+				allLost = false;
+			longestLoss = Math.max(longestLoss, loss);
+		}
+		return allLost && longestLoss == distance ? -distance : UNKNOWN;
+	}
+
+	/**
+	*	@return the spheres of the player once the packed move is made
+	**/
+	private static int play(int spheres, int move)
+	{
+		if (Moves.type(move) == Moves.RAISE)
+			spheres &= ~(1 << Moves.from(move));
+		spheres |= 1 << Moves.to(move);
+		if (Moves.firstRemoval(move) != Moves.NONE)
+			spheres &= ~(1 << Moves.firstRemoval(move));
+		if (Moves.secondRemoval(move) != Moves.NONE)
+			spheres &= ~(1 << Moves.secondRemoval(move));
+		return spheres;
+	}
+
+	/**
+	*	@return the next larger int with as many bits set, or 0 when there is none below the sign bit
+	**/
+	private static int nextSubset(int subset)
+	{
+		int lowest = subset & -subset;
+		int ripple = subset + lowest;
+		return (((ripple ^ subset) >>> 2) / lowest) | ripple;
+	}
+
+	/**
+	*	@return the index of the position in the file, or -1 if it isn't in the tablebase
+	**/
+	long getIndex(int black, int white, boolean blackToMove)
+	{
+		return index.getIndex(black, white, blackToMove);
+	}
+
+	/**
+	*	@return the value of the position for the player to move, or UNKNOWN if it isn't in the tablebase
+	**/
+	int getValue(int black, int white, boolean blackToMove)
+	{
+		long position = index.getIndex(black, white, blackToMove);
+		return position < 0 ? UNKNOWN : getValue(position);
+	}
+
+	private int getValue(long position)
+	{
+		long offset = HEADER_BYTES + position;
+		return chunks[(int) (offset >>> CHUNK_BITS)].get((int) (offset & CHUNK_MASK));
+	}
+
+	private void setValue(long position, int value)
+	{
+		long offset = HEADER_BYTES + position;
+		chunks[(int) (offset >>> CHUNK_BITS)].put((int) (offset & CHUNK_MASK), (byte) value);
+	}
+
+	/**
+	*	Looks the position up, for a search that has just found that the game isn't over.
+	*	@param toMove the player whose turn it is
+	*	@param other the other player
+	*	@return a positive number of plies if the player to move wins, a negative one if it loses, UNKNOWN otherwise
+	**/
+	public int probe(Board board, Player toMove, Player other)
+	{
+		int empty = 30 - Integer.bitCount(board.getOccupied());
+		if (empty > index.getMaxEmpty())
+			return UNKNOWN;
+		probes.increment();
+		int black = board.getSpheres(Board.BLACK_SPHERE);
+		int white = board.getSpheres(Board.WHITE_SPHERE);
+		// A board set up by hand could have spheres in hand that don't match the ones on the board
+		if (toMove.getNumSpheres() != SPHERES - Integer.bitCount(board.getSpheres(toMove.getColour()))
+			|| other.getNumSpheres() != SPHERES - Integer.bitCount(board.getSpheres(other.getColour())))
+			return UNKNOWN;
+		int value = getValue(black, white, toMove.getColour() == Board.BLACK_SPHERE);
+		if (value != UNKNOWN)
+			hits.increment();
+		return value;
+	}
+
+	/**
+	*	Looks the position up for a search leaf, like probe.
+	*	@return Integer.MAX_VALUE - 1 if black wins, Integer.MIN_VALUE + 1 if white wins, as the searches score the
+	*	end of the game, or UNKNOWN if the position isn't solved
+	**/
+	public int probeScore(Board board, Player toMove, Player other)
+	{
+		int value = probe(board, toMove, other);
+		if (value == UNKNOWN)
+			return UNKNOWN;
+		return (value > 0) == (toMove.getColour() == Board.BLACK_SPHERE) ? Integer.MAX_VALUE - 1 : Integer.MIN_VALUE + 1;
+	}
+
+	public int getMaxEmpty()
+	{
+		return index.getMaxEmpty();
+	}
+
+	public long getPositions()
+	{
+		return positions;
+	}
+
+	public long getProbes()
+	{
+		return probes.sum();
+	}
+
+	public long getHits()
+	{
+		return hits.sum();
+	}
+
+	/**
+	*	Generates a tablebase. Usage: java Tablebase [maxEmpty] [file]
+	**/
+	public static void main(String[] args) throws IOException
+	{
+		int maxEmpty = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+		Path file = Paths.get(args.length > 1 ? args[1] : System.getProperty("pylos.tablebase", DEFAULT_FILE));
+		long startTime = System.nanoTime();
+		Tablebase tablebase = generate(maxEmpty, file, (distance, wins, losses) ->
+			System.out.printf("Distance %d: %d wins, %d losses, %.1f seconds%n", distance, wins, losses,
+				(System.nanoTime() - startTime) / 1e9));
+		System.out.println("Wrote " + tablebase.positions + " positions with at most " + maxEmpty + " empty cells to " + file);
+	}
+}
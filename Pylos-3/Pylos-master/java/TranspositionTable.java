@@ -0,0 +1,178 @@
+import java.util.Arrays;
+
+/**
+*	A fixed-size table of search results, indexed by a hash of the position (see Board.getCanonicalHash).
+*	The table is made of buckets of two entries: the first one keeps the deepest result seen for the bucket,
+*	the second one always takes the latest result, so that recent shallow results are not lost either.
+*	Each entry is a pair of longs, the full hash XORed with the data, and the packed data: score (32 bits),
+*	best move (22 bits), searched depth (5 bits), bound (2 bits) and the search generation (3 bits).
+*	The XOR lets threads share the entries without locks (see share): an entry half written by another thread
+*	no longer matches its hash, and is seen as a miss rather than as the result of another position.
+**/
+class TranspositionTable
+{
+	public static final int EXACT = 1;
+	/**
+	*	The score is a lower bound of the real score, the search failed high
+	**/
+	public static final int LOWER_BOUND = 2;
+	/**
+	*	The score is an upper bound of the real score, the search failed low
+	**/
+	public static final int UPPER_BOUND = 3;
+
+	private static final int ENTRY_BYTES = 16;
+
+	private static final int MOVE_SHIFT = 32;
+	private static final int DEPTH_SHIFT = 54;
+	private static final int BOUND_SHIFT = 59;
+	private static final int GENERATION_SHIFT = 61;
+	private static final long MOVE_MASK = (1L << 22) - 1;
+	private static final int DEPTH_MASK = 0x1F;
+	private static final int GENERATION_MASK = 7;
+
+	// Entry 2i is the depth-preferred entry of bucket i, entry 2i+1 the always-replace one
+	private final long[] keys;
+	private final long[] data;
+	private final int bucketMask;
+	private int generation;
+
+	// Data of the last successful probe
+	private long found;
+
+	private long probes = 0;
+	private long hits = 0;
+	private long stores = 0;
+
+	/**
+	*	@param megabytes the memory budget of the table, rounded down to a power of two number of buckets
+	**/
+	public TranspositionTable(int megabytes)
+	{
+		long buckets = Math.max(1, (long) megabytes * 1024 * 1024 / (2 * ENTRY_BYTES));
+		int size = Integer.highestOneBit((int) Math.min(buckets, 1 << 28));
+		keys = new long[2 * size];
+		data = new long[2 * size];
+		bucketMask = size - 1;
+	}
+
+	private TranspositionTable(TranspositionTable other)
+	{
+		keys = other.keys;
+		data = other.data;
+		bucketMask = other.bucketMask;
+		generation = other.generation;
+	}
+
+	/**
+	*	Returns a new table sharing the entries of this one, for another thread. Each table has its own
+	*	last probe and statistics, and must only be used by one thread; newSearch must be called on all of them.
+	**/
+	public TranspositionTable share()
+	{
+		return new TranspositionTable(this);
+	}
+
+	/**
+	*	Starts a new search: results of the previous searches are kept, but the deepest
+	*	entries they left behind no longer prevent new results from being stored. Statistics are reset.
+	**/
+	public void newSearch()
+	{
+		generation = (generation + 1) & GENERATION_MASK;
+		probes = 0;
+		hits = 0;
+		stores = 0;
+	}
+
+	/**
+	*	Looks up a position. When it is found, its entry can be read through the getters until the next probe.
+	*	@param hash the hash of the position
+	*	@return true if the table holds a result for the position
+	**/
+	public boolean probe(long hash)
+	{
+		probes++;
+		int entry = bucket(hash);
+		// Each long is read once, as another thread may be writing the entry
+		long entryData = data[entry];
+		if ((keys[entry] ^ entryData) != hash || entryData == 0)
+		{
+			entry++;
+			entryData = data[entry];
+			if ((keys[entry] ^ entryData) != hash || entryData == 0)
+				return false;
+		}
+		found = entryData;
+		hits++;
+		return true;
+	}
+
+	public int getScore() { return (int) found; }
+	public int getMove() { return (int) (found >>> MOVE_SHIFT & MOVE_MASK); }
+	public int getDepth() { return (int) (found >>> DEPTH_SHIFT) & DEPTH_MASK; }
+	public int getBound() { return (int) (found >>> BOUND_SHIFT) & 3; }
+
+	/**
+	*	Stores the result of the search of a position.
+	*	@param hash the hash of the position
+	*	@param depth the depth the position was searched to
+	*	@param bound one of EXACT, LOWER_BOUND or UPPER_BOUND
+	*	@param score the score found by the search
+	*	@param move the best move found, or Moves.NO_MOVE
+	**/
+	public void store(long hash, int depth, int bound, int score, int move)
+	{
+		stores++;
+		long packed = (score & 0xFFFFFFFFL) | (long) move << MOVE_SHIFT | (long) Math.min(depth, DEPTH_MASK) << DEPTH_SHIFT
+			| (long) bound << BOUND_SHIFT | (long) generation << GENERATION_SHIFT;
+		int entry = bucket(hash);
+		long deepest = data[entry];
+		long deepestKey = keys[entry] ^ deepest;
+		if (deepest == 0 || deepestKey == hash || depth >= ((int) (deepest >>> DEPTH_SHIFT) & DEPTH_MASK)
+			|| (int) (deepest >>> GENERATION_SHIFT) != generation)
+		{
+			// The result replaces the deepest one, which moves down to the always-replace entry if it was for another position
+			if (deepest != 0 && deepestKey != hash)
+			{
+				keys[entry + 1] = deepestKey ^ deepest;
+				data[entry + 1] = deepest;
+			}
+		}
+		else
+			entry++;
+		keys[entry] = hash ^ packed;
+		data[entry] = packed;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(keys, 0);
+		Arrays.fill(data, 0);
+	}
+
+	private int bucket(long hash)
+	{
+		return ((int) hash & bucketMask) << 1;
+	}
+
+	/**
+	*	@return the percentage of probes that found their position since the last call to newSearch
+	**/
+	public double getHitRate()
+	{
+		return probes == 0 ? 0 : 100.0 * hits / probes;
+	}
+
+	public long getProbes() { return probes; }
+	public long getHits() { return hits; }
+	public long getStores() { return stores; }
+
+	/**
+	*	@return the number of entries the table can hold
+	**/
+	public int getCapacity()
+	{
+		return keys.length;
+	}
+}